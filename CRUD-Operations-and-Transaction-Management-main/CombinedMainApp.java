@@ -68,13 +68,23 @@ public class SpringDIConfig {
 package com.example.combined;
 
 import javax.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+// Nonstrict: a student read just after a concurrent update may be briefly
+// stale, in exchange for no locking on the cache
 @Entity
 @Table(name = "students")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "student")
 public class Student {
     
+    // IDENTITY would make Hibernate insert each row as soon as it is saved
+    // to learn its key, which disables JDBC batching. A pooled generator
+    // hands out 50 IDs per round trip instead (a student_seq table on MySQL).
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "student_seq")
+    @SequenceGenerator(name = "student_seq", sequenceName = "student_seq", allocationSize = 50)
     @Column(name = "student_id")
     private int id;
     
@@ -125,12 +135,22 @@ import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
 
 public class HibernateUtil {
+    public static final int DEFAULT_BATCH_SIZE = 50;
+    
     private static SessionFactory sessionFactory;
+    private static int batchSize;
     
     static {
         try {
-            sessionFactory = new Configuration()
-                .configure("hibernate.cfg.xml")
+            Configuration configuration = new Configuration().configure("hibernate.cfg.xml");
+            // Defaults for anything hibernate.cfg.xml does not set. Ordering
+            // groups statements by entity so a mixed flush still batches.
+            setDefault(configuration, "hibernate.jdbc.batch_size", String.valueOf(DEFAULT_BATCH_SIZE));
+            setDefault(configuration, "hibernate.order_inserts", "true");
+            setDefault(configuration, "hibernate.order_updates", "true");
+            batchSize = Integer.parseInt(configuration.getProperty("hibernate.jdbc.batch_size"));
+            configuration.addProperties(CacheSettings.properties("ehcache-students.xml"));
+            sessionFactory = configuration
                 .addAnnotatedClass(Student.class)
                 .addAnnotatedClass(Account.class)
                 .addAnnotatedClass(Transaction.class)
@@ -141,10 +161,20 @@ public class HibernateUtil {
         }
     }
     
+    private static void setDefault(Configuration configuration, String name, String value) {
+        if (configuration.getProperty(name) == null) {
+            configuration.setProperty(name, value);
+        }
+    }
+    
     public static SessionFactory getSessionFactory() {
         return sessionFactory;
     }
     
+    public static int getBatchSize() {
+        return batchSize;
+    }
+    
     public static void shutdown() {
         if (sessionFactory != null) {
             sessionFactory.close();
@@ -152,16 +182,81 @@ public class HibernateUtil {
     }
 }
 
+// CacheSettings.java - opt-in second-level and query cache
+package com.example.combined;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import java.util.Properties;
+
+// Off unless the JVM is started with -Dcombined.cache=true. The provider is
+// Ehcache 3 behind JCache. Each SessionFactory gets its own cache manager
+// from its own config file, which sets the size and time-to-live of every
+// region. A region missing from the file fails startup rather than being
+// created unbounded. Hibernate keeps the regions in step with writes made
+// through its sessions, including HQL bulk deletes; changes made directly
+// in MySQL are only picked up once the entries expire.
+public class CacheSettings {
+    public static final boolean ENABLED = Boolean.getBoolean("combined.cache");
+    
+    public static Properties properties(String configResource) {
+        Properties properties = new Properties();
+        if (ENABLED) {
+            properties.put("hibernate.cache.use_second_level_cache", "true");
+            properties.put("hibernate.cache.use_query_cache", "true");
+            properties.put("hibernate.cache.region.factory_class", "jcache");
+            properties.put("hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider");
+            properties.put("hibernate.javax.cache.uri", configResource);
+            properties.put("hibernate.javax.cache.missing_cache_strategy", "fail");
+            properties.put("hibernate.generate_statistics", "true");
+            properties.put("hibernate.session.events.log", "false");
+        }
+        return properties;
+    }
+    
+    public static void printStatistics(SessionFactory sessionFactory) {
+        if (!ENABLED) return;
+        Statistics stats = sessionFactory.getStatistics();
+        System.out.println("\nCache statistics:");
+        for (String region : stats.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics r = stats.getCacheRegionStatistics(region);
+            if (r != null) {
+                print(region, r.getHitCount(), r.getMissCount(), r.getPutCount());
+            }
+        }
+        print("(all queries)", stats.getQueryCacheHitCount(), stats.getQueryCacheMissCount(),
+            stats.getQueryCachePutCount());
+    }
+    
+    private static void print(String region, long hits, long misses, long puts) {
+        long lookups = hits + misses;
+        System.out.printf("  %-34s hits %6d  misses %6d  puts %6d  hit ratio %5.1f%%%n",
+            region, hits, misses, puts, lookups == 0 ? 0 : 100.0 * hits / lookups);
+    }
+}
+
 // StudentDAO.java
 package com.example.combined;
 
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
 import org.hibernate.query.Query;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class StudentDAO {
     
+    // Rows per round trip for streaming reads. MySQL only honours it with
+    // useCursorFetch=true on the URL; otherwise the driver buffers everything.
+    private static final int STREAM_FETCH_SIZE = 1000;
+    
     public void saveStudent(Student student) {
         Transaction transaction = null;
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
@@ -184,6 +279,8 @@ public class StudentDAO {
         }
     }
     
+    // Loads the whole table into one session; use findPage or stream for
+    // anything that can grow
     public List<Student> getAllStudents() {
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             Query<Student> query = session.createQuery("FROM Student", Student.class);
@@ -194,6 +291,56 @@ public class StudentDAO {
         }
     }
     
+    // Keyset page: up to size students with an ID above afterId, in ID
+    // order. Start with 0 and pass the last ID of each page to get the next,
+    // so every page is an index range scan however deep it is.
+    public List<Student> findPage(int afterId, int size) {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.createQuery("FROM Student WHERE id > :afterId ORDER BY id", Student.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(size)
+                .list();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Collections.emptyList();
+        }
+    }
+    
+    // Visits every student in ID order through a forward-only cursor. A
+    // StatelessSession has no persistence context, so nothing accumulates
+    // and memory stays flat however large the table is. Returns the number
+    // of students visited.
+    public long stream(Consumer<Student> action) {
+        long count = 0;
+        try (StatelessSession session = HibernateUtil.getSessionFactory().openStatelessSession();
+             ScrollableResults results = session.createQuery("FROM Student ORDER BY id", Student.class)
+                 .setFetchSize(STREAM_FETCH_SIZE)
+                 .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                action.accept((Student) results.get(0));
+                count++;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return count;
+    }
+    
+    // The same cursor as a Stream. Close it (try-with-resources) to release
+    // the cursor and its session.
+    public Stream<Student> stream() {
+        StatelessSession session = HibernateUtil.getSessionFactory().openStatelessSession();
+        try {
+            return session.createQuery("FROM Student ORDER BY id", Student.class)
+                .setFetchSize(STREAM_FETCH_SIZE)
+                .stream()
+                .onClose(session::close);
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
+        }
+    }
+    
     public void updateStudent(Student student) {
         Transaction transaction = null;
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
@@ -224,6 +371,55 @@ public class StudentDAO {
             e.printStackTrace();
         }
     }
+    
+    // Bulk writes: one session and one transaction for the whole collection.
+    // The session is flushed and cleared every batchSize entities, so it never
+    // holds more than one batch and each flush is a single JDBC batch.
+    // Returns the number written, or 0 if the transaction was rolled back.
+    public int saveAll(Collection<Student> students) {
+        return saveAll(students, HibernateUtil.getBatchSize());
+    }
+    
+    public int saveAll(Collection<Student> students, int batchSize) {
+        return writeAll(students, batchSize, true);
+    }
+    
+    public int updateAll(Collection<Student> students) {
+        return updateAll(students, HibernateUtil.getBatchSize());
+    }
+    
+    public int updateAll(Collection<Student> students, int batchSize) {
+        return writeAll(students, batchSize, false);
+    }
+    
+    private int writeAll(Collection<Student> students, int batchSize, boolean insert) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            session.setJdbcBatchSize(batchSize);
+            transaction = session.beginTransaction();
+            int count = 0;
+            for (Student student : students) {
+                if (insert) {
+                    session.save(student);
+                } else {
+                    session.update(student);
+                }
+                if (++count % batchSize == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            transaction.commit();
+            return count;
+        } catch (Exception e) {
+            if (transaction != null) transaction.rollback();
+            e.printStackTrace();
+            return 0;
+        }
+    }
 }
 
 // ============================================================
@@ -234,9 +430,15 @@ public class StudentDAO {
 package com.example.combined;
 
 import javax.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+// Read-write: balances are soft-locked in the cache while a transfer is in
+// flight, so no one reads a balance the transfer is about to change
 @Entity
 @Table(name = "accounts")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "account")
 public class Account {
     
     @Id
@@ -361,6 +563,9 @@ public class AccountDAO {
         Query<Account> query = session.createQuery(
             "FROM Account WHERE accountNumber = :accNum", Account.class);
         query.setParameter("accNum", accountNumber);
+        // Cached as account IDs; any write to accounts invalidates the region
+        query.setCacheable(true);
+        query.setCacheRegion("account-by-number");
         return query.uniqueResult();
     }
     
@@ -518,6 +723,7 @@ public class SpringHibernateConfig {
         properties.put("hibernate.hbm2ddl.auto", "update");
         properties.put("hibernate.show_sql", "true");
         properties.put("hibernate.format_sql", "true");
+        properties.putAll(CacheSettings.properties("ehcache-bank.xml"));
         return properties;
     }
     
@@ -538,11 +744,25 @@ package com.example.combined;
 
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class CombinedMainApp {
     
+    private static final int PAGE_SIZE = 20;
+    
     public static void main(String[] args) {
+        // Batched vs unbatched StudentDAO writes:
+        //   java CombinedMainApp benchmark-students [count]
+        if (args.length >= 1 && args[0].equals("benchmark-students")) {
+            runBatchBenchmark(args.length >= 2 ? Integer.parseInt(args[1]) : 5000);
+            HibernateUtil.shutdown();
+            return;
+        }
+        
         System.out.println("╔════════════════════════════════════════════════════════╗");
         System.out.println("║  SPRING & HIBERNATE COMPREHENSIVE DEMONSTRATION        ║");
         System.out.println("╚════════════════════════════════════════════════════════╝\n");
@@ -588,11 +808,16 @@ public class CombinedMainApp {
         dao.saveStudent(s1);
         dao.saveStudent(s2);
         
-        // READ ALL
+        // READ ALL, one keyset page at a time
         System.out.println("\n2. READ - Fetching All Students...");
-        List<Student> students = dao.getAllStudents();
-        for (Student s : students) {
-            System.out.println(s);
+        List<Student> students = dao.findPage(0, PAGE_SIZE);
+        List<Student> page = students;
+        while (!page.isEmpty()) {
+            for (Student s : page) {
+                System.out.println(s);
+            }
+            page = page.size() < PAGE_SIZE ? Collections.emptyList()
+                : dao.findPage(page.get(page.size() - 1).getId(), PAGE_SIZE);
         }
         
         // UPDATE
@@ -617,12 +842,75 @@ public class CombinedMainApp {
             dao.deleteStudent(students.get(1).getId());
         }
         
-        // FINAL LIST
+        // FINAL LIST, streamed
         System.out.println("\n6. Final Student List:");
-        students = dao.getAllStudents();
-        for (Student s : students) {
-            System.out.println(s);
+        long listed = dao.stream(System.out::println);
+        System.out.println("(" + listed + " students)");
+        
+        CacheSettings.printStatistics(HibernateUtil.getSessionFactory());
+    }
+    
+    private static void runBatchBenchmark(int count) {
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("STUDENT WRITE BENCHMARK (" + count + " students per run, batch size "
+            + HibernateUtil.getBatchSize() + ")");
+        System.out.println("=".repeat(60));
+        
+        StudentDAO dao = new StudentDAO();
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        int batchSize = HibernateUtil.getBatchSize();
+        
+        List<Student> perEntity = benchmarkStudents(run, "a", count);
+        long start = System.nanoTime();
+        int written = 0;
+        for (Student s : perEntity) {
+            written += dao.saveAll(Collections.singletonList(s), 1);
+        }
+        report("insert, transaction per student", written, System.nanoTime() - start);
+        
+        List<Student> unbatched = benchmarkStudents(run, "b", count);
+        start = System.nanoTime();
+        report("insert, one transaction, unbatched", dao.saveAll(unbatched, 1), System.nanoTime() - start);
+        
+        List<Student> batched = benchmarkStudents(run, "c", count);
+        start = System.nanoTime();
+        report("insert, one transaction, batched", dao.saveAll(batched, batchSize), System.nanoTime() - start);
+        
+        for (Student s : unbatched) s.setAge(s.getAge() + 1);
+        start = System.nanoTime();
+        report("update, one transaction, unbatched", dao.updateAll(unbatched, 1), System.nanoTime() - start);
+        
+        for (Student s : batched) s.setAge(s.getAge() + 1);
+        start = System.nanoTime();
+        report("update, one transaction, batched", dao.updateAll(batched, batchSize), System.nanoTime() - start);
+        
+        org.hibernate.Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+            int removed = session.createQuery("DELETE FROM Student WHERE email LIKE :suffix")
+                .setParameter("suffix", "%@" + run + ".bench")
+                .executeUpdate();
+            transaction.commit();
+            System.out.println("Removed " + removed + " benchmark students");
+        } catch (Exception e) {
+            if (transaction != null) transaction.rollback();
+            e.printStackTrace();
+        }
+    }
+    
+    private static List<Student> benchmarkStudents(String run, String phase, int count) {
+        List<Student> students = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            students.add(new Student("Bench Student " + i, phase + i + "@" + run + ".bench",
+                18 + i % 10, "Benchmark"));
         }
+        return students;
+    }
+    
+    private static void report(String label, int rows, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("%-38s %7d rows %9.1f ms %10.0f rows/s%n",
+            label, rows, seconds * 1e3, rows / Math.max(seconds, 1e-9));
     }
     
     private static void runPartC() {
@@ -677,6 +965,8 @@ public class CombinedMainApp {
             System.out.println(john);
             System.out.println(jane);
             
+            CacheSettings.printStatistics(context.getBean(SessionFactory.class));
+            
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
@@ -703,13 +993,15 @@ public class CombinedMainApp {
  * <hibernate-configuration>
  *     <session-factory>
  *         <property name="hibernate.connection.driver_class">com.mysql.cj.jdbc.Driver</property>
- *         <property name="hibernate.connection.url">jdbc:mysql://localhost:3306/combined_db</property>
+ *         <property name="hibernate.connection.url">jdbc:mysql://localhost:3306/combined_db?rewriteBatchedStatements=true&amp;useCursorFetch=true</property>
  *         <property name="hibernate.connection.username">root</property>
  *         <property name="hibernate.connection.password">password</property>
  *         <property name="hibernate.dialect">org.hibernate.dialect.MySQL8Dialect</property>
  *         <property name="hibernate.hbm2ddl.auto">update</property>
  *         <property name="hibernate.show_sql">true</property>
  *         <property name="hibernate.format_sql">true</property>
+ *         <!-- Optional: HibernateUtil defaults to 50 with ordered inserts/updates -->
+ *         <property name="hibernate.jdbc.batch_size">50</property>
  *     </session-factory>
  * </hibernate-configuration>
  * 
@@ -746,6 +1038,18 @@ public class CombinedMainApp {
  *         <version>5.6.10.Final</version>
  *     </dependency>
  *     
+ *     <!-- Second-level cache (only used with -Dcombined.cache=true) -->
+ *     <dependency>
+ *         <groupId>org.hibernate</groupId>
+ *         <artifactId>hibernate-jcache</artifactId>
+ *         <version>5.6.10.Final</version>
+ *     </dependency>
+ *     <dependency>
+ *         <groupId>org.ehcache</groupId>
+ *         <artifactId>ehcache</artifactId>
+ *         <version>3.10.8</version>
+ *     </dependency>
+ *     
  *     <!-- MySQL Connector -->
  *     <dependency>
  *         <groupId>mysql</groupId>
@@ -755,7 +1059,60 @@ public class CombinedMainApp {
  * </dependencies>
  * 
  * ============================================================
- * 3. Database Setup (MySQL):
+ * 3. ehcache-students.xml and ehcache-bank.xml (src/main/resources),
+ *    read only when caching is on. One file per SessionFactory; both
+ *    map every entity, so both list every entity region.
+ * ============================================================
+ * 
+ * ehcache-students.xml (HibernateUtil / StudentDAO):
+ * 
+ * <config xmlns="http://www.ehcache.org/v3">
+ *     <cache alias="student">
+ *         <expiry><ttl unit="minutes">10</ttl></expiry>
+ *         <heap unit="entries">10000</heap>
+ *     </cache>
+ *     <cache alias="account">
+ *         <expiry><ttl unit="minutes">1</ttl></expiry>
+ *         <heap unit="entries">100</heap>
+ *     </cache>
+ *     <cache alias="default-query-results-region">
+ *         <expiry><ttl unit="minutes">5</ttl></expiry>
+ *         <heap unit="entries">1000</heap>
+ *     </cache>
+ *     <!-- Last write time per table; must outlive every query region -->
+ *     <cache alias="default-update-timestamps-region">
+ *         <expiry><none/></expiry>
+ *         <heap unit="entries">1000</heap>
+ *     </cache>
+ * </config>
+ * 
+ * ehcache-bank.xml (SpringHibernateConfig / BankingService):
+ * 
+ * <config xmlns="http://www.ehcache.org/v3">
+ *     <cache alias="account">
+ *         <expiry><ttl unit="minutes">10</ttl></expiry>
+ *         <heap unit="entries">10000</heap>
+ *     </cache>
+ *     <cache alias="student">
+ *         <expiry><ttl unit="minutes">1</ttl></expiry>
+ *         <heap unit="entries">100</heap>
+ *     </cache>
+ *     <cache alias="account-by-number">
+ *         <expiry><ttl unit="minutes">10</ttl></expiry>
+ *         <heap unit="entries">10000</heap>
+ *     </cache>
+ *     <cache alias="default-query-results-region">
+ *         <expiry><ttl unit="minutes">5</ttl></expiry>
+ *         <heap unit="entries">1000</heap>
+ *     </cache>
+ *     <cache alias="default-update-timestamps-region">
+ *         <expiry><none/></expiry>
+ *         <heap unit="entries">1000</heap>
+ *     </cache>
+ * </config>
+ * 
+ * ============================================================
+ * 4. Database Setup (MySQL):
  * ============================================================
  * 
  * CREATE DATABASE combined_db;
@@ -763,6 +1120,12 @@ public class CombinedMainApp {
  * 
  * -- Tables will be auto-created by Hibernate (hbm2ddl.auto=update)
  * 
+ * -- Existing students table from before the pooled ID generator: move
+ * -- student_seq past the current IDs once Hibernate has created it. The
+ * -- pooled optimizer treats the value it reads as the top of a block of
+ * -- allocationSize (50) IDs, so next_val must be MAX + 50, not MAX + 1
+ * UPDATE student_seq SET next_val = (SELECT COALESCE(MAX(student_id), 0) + 50 FROM students);
+ * 
  * ============================================================
  * PROJECT STRUCTURE:
  * ============================================================
@@ -773,6 +1136,7 @@ public class CombinedMainApp {
  * ├── SpringDIConfig.java
  * ├── Student.java (Hibernate Entity)
  * ├── HibernateUtil.java
+ * ├── CacheSettings.java
  * ├── StudentDAO.java
  * ├── Account.java
  * ├── Transaction.java
@@ -783,7 +1147,9 @@ public class CombinedMainApp {
  * └── CombinedMainApp.java (MAIN CLASS - RUN THIS)
  * 
  * src/main/resources/
- * └── hibernate.cfg.xml
+ * ├── hibernate.cfg.xml
+ * ├── ehcache-students.xml
+ * └── ehcache-bank.xml
  * 
  * ============================================================
  * HOW TO RUN:
@@ -795,6 +1161,9 @@ public class CombinedMainApp {
  *    - SpringHibernateConfig.java
  * 3. Add Maven dependencies to pom.xml
  * 4. Run: CombinedMainApp.java
+ * 5. Batched vs unbatched write benchmark: CombinedMainApp benchmark-students 5000
+ * 6. Second-level and query cache: add -Dcombined.cache=true to the JVM
+ *    options; hit ratios are printed after Parts B and C
  * 
  * The application will execute all three parts sequentially:
  * - Part A: Spring DI demonstration
@@ -1,5 +1,39 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 // ============================================================================
 // PART A: Simple Employee Data Fetcher
@@ -32,6 +66,310 @@ class PartA_EmployeeFetcher {
             System.err.println("Error: " + e.getMessage());
         }
     }
+    
+    // ------------------------------------------------------------------------
+    // Parallel dump mode
+    // ------------------------------------------------------------------------
+    // Rows per round trip; useCursorFetch makes MySQL honour it instead of
+    // loading each chunk into memory
+    private static final String STREAM_URL = DB_URL + "?useCursorFetch=true";
+    private static final int FETCH_SIZE = 1000;
+    private static final int FLUSH_CHARS = 64 * 1024;
+    
+    // Splits the EmpID range into `chunks` ranges and reads them on `threads`
+    // connections at once. Ordered output spools each chunk to a temp file and
+    // appends them in key order at the end; unordered output writes each
+    // buffer as soon as it fills. outputFile == null writes to the console.
+    public static void executeParallel(int chunks, int threads, boolean ordered, String outputFile) {
+        chunks = Math.max(1, chunks);
+        threads = Math.max(1, Math.min(threads, chunks));
+        long start = System.nanoTime();
+        
+        BlockingQueue<Connection> connections = new ArrayBlockingQueue<>(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Path> spoolFiles = new ArrayList<>();
+        WritableByteChannel out = null;
+        try {
+            for (int i = 0; i < threads; i++) {
+                connections.add(DriverManager.getConnection(STREAM_URL, DB_USER, DB_PASSWORD));
+            }
+            long[][] ranges = splitKeyRange(connections.peek(), chunks);
+            
+            System.out.flush();
+            out = outputFile == null
+                ? Channels.newChannel(System.out)
+                : FileChannel.open(Paths.get(outputFile), StandardOpenOption.CREATE,
+                      StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            StringBuilder header = new StringBuilder();
+            header.append("=".repeat(60)).append('\n');
+            pad(header, "EmpID", 10).append(' ');
+            pad(header, "Name", 30).append(' ');
+            pad(header, "Salary", 15).append('\n');
+            header.append("=".repeat(60)).append('\n');
+            write(out, header);
+            
+            List<Future<Long>> results = new ArrayList<>();
+            WritableByteChannel dump = out;
+            for (long[] range : ranges) {
+                if (ordered) {
+                    Path spool = Files.createTempFile("employee-chunk-", ".txt");
+                    spoolFiles.add(spool);
+                    results.add(executor.submit(() -> spoolChunk(connections, range[0], range[1], spool)));
+                } else {
+                    results.add(executor.submit(() -> fetchChunk(connections, range[0], range[1], dump)));
+                }
+            }
+            
+            long rows = 0;
+            for (int i = 0; i < results.size(); i++) {
+                rows += results.get(i).get();
+                if (ordered) {
+                    // Chunk files are appended in key order as soon as each one is done
+                    try (FileChannel spool = FileChannel.open(spoolFiles.get(i), StandardOpenOption.READ)) {
+                        long size = spool.size();
+                        for (long pos = 0; pos < size; ) {
+                            pos += spool.transferTo(pos, size - pos, out);
+                        }
+                    }
+                }
+            }
+            write(out, new StringBuilder("=".repeat(60)).append('\n'));
+            
+            double seconds = (System.nanoTime() - start) / 1e9;
+            // Report on stderr so it never ends up inside a dump piped from stdout
+            System.err.printf("Dumped %d rows in %d chunks on %d connections (%s) in %.2f s: %.0f rows/s%n",
+                rows, ranges.length, threads, ordered ? "ordered" : "unordered",
+                seconds, rows / Math.max(seconds, 1e-9));
+        } catch (Exception e) {
+            Throwable cause = e instanceof java.util.concurrent.ExecutionException ? e.getCause() : e;
+            System.err.println("Error: " + cause.getMessage());
+        } finally {
+            executor.shutdownNow();
+            for (Connection conn : connections) {
+                try { conn.close(); } catch (SQLException ignored) { }
+            }
+            for (Path spool : spoolFiles) {
+                try { Files.deleteIfExists(spool); } catch (IOException ignored) { }
+            }
+            if (out != null && outputFile != null) {
+                try { out.close(); } catch (IOException ignored) { }
+            }
+        }
+    }
+    
+    // Evenly sized [from, to] EmpID ranges covering MIN..MAX
+    private static long[][] splitKeyRange(Connection conn, int chunks) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(EmpID), MAX(EmpID) FROM Employee")) {
+            rs.next();
+            long min = rs.getLong(1);
+            if (rs.wasNull()) return new long[0][];
+            long max = rs.getLong(2);
+            long size = Math.max(1, (max - min + chunks) / chunks);
+            List<long[]> ranges = new ArrayList<>();
+            for (long from = min; from <= max; from += size) {
+                ranges.add(new long[]{from, Math.min(max, from + size - 1)});
+            }
+            return ranges.toArray(new long[0][]);
+        }
+    }
+    
+    // The spool file is only open while its chunk is being read, so no more
+    // than `threads` of them are open at once however many chunks there are
+    private static long spoolChunk(BlockingQueue<Connection> connections, long from, long to,
+                                   Path spool) throws Exception {
+        try (FileChannel file = FileChannel.open(spool, StandardOpenOption.WRITE)) {
+            return fetchChunk(connections, from, to, file);
+        }
+    }
+    
+    private static long fetchChunk(BlockingQueue<Connection> connections, long from, long to,
+                                   WritableByteChannel out) throws Exception {
+        Connection conn = connections.take();
+        long rows = 0;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT EmpID, Name, Salary FROM Employee WHERE EmpID BETWEEN ? AND ? ORDER BY EmpID",
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setLong(1, from);
+            ps.setLong(2, to);
+            StringBuilder buf = new StringBuilder(FLUSH_CHARS + 256);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    pad(buf, Integer.toString(rs.getInt(1)), 10).append(' ');
+                    pad(buf, rs.getString(2), 30).append(" $");
+                    BigDecimal salary = rs.getBigDecimal(3);
+                    pad(buf, salary == null ? "null" : salary.setScale(2, RoundingMode.HALF_UP).toPlainString(), 14)
+                        .append('\n');
+                    rows++;
+                    if (buf.length() >= FLUSH_CHARS) {
+                        write(out, buf);
+                    }
+                }
+            }
+            write(out, buf);
+        } finally {
+            connections.put(conn);
+        }
+        return rows;
+    }
+    
+    // Left-aligned like %-Ns
+    private static StringBuilder pad(StringBuilder sb, String value, int width) {
+        sb.append(value);
+        for (int i = value.length(); i < width; i++) sb.append(' ');
+        return sb;
+    }
+    
+    // Whole buffers go out under one lock so lines from different chunks
+    // never interleave
+    private static void write(WritableByteChannel out, StringBuilder buf) throws IOException {
+        if (buf.length() == 0) return;
+        ByteBuffer bytes = ByteBuffer.wrap(buf.toString().getBytes(StandardCharsets.UTF_8));
+        synchronized (out) {
+            while (bytes.hasRemaining()) out.write(bytes);
+        }
+        buf.setLength(0);
+    }
+}
+
+// ============================================================================
+// SHARED: Prepared Statement Cache
+// ============================================================================
+// Owns one long-lived connection and prepares each SQL string once. Callers
+// get the cached statement back with its parameters cleared. If the
+// connection drops, the next call reconnects and re-prepares on demand.
+// Not thread-safe: each controller has its own.
+class StatementCache implements AutoCloseable {
+    interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+    
+    private final ConnectionFactory factory;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    private Connection conn;
+    private long hits, misses, reconnects;
+    
+    StatementCache(ConnectionFactory factory) throws SQLException {
+        this.factory = factory;
+        this.conn = factory.open();
+    }
+    
+    Connection connection() throws SQLException {
+        if (conn == null || conn.isClosed()) {
+            discard();
+            conn = factory.open();
+            reconnects++;
+        }
+        return conn;
+    }
+    
+    PreparedStatement prepare(String sql) throws SQLException {
+        Connection c = connection();
+        PreparedStatement ps = statements.get(sql);
+        if (ps != null && !ps.isClosed()) {
+            hits++;
+            ps.clearParameters();
+            return ps;
+        }
+        misses++;
+        ps = c.prepareStatement(sql);
+        statements.put(sql, ps);
+        return ps;
+    }
+    
+    void commit() throws SQLException {
+        connection().commit();
+    }
+    
+    void rollback() throws SQLException {
+        connection().rollback();
+    }
+    
+    // Rolls back after a failed statement. SQLState class 08 means the
+    // connection itself is gone (the server has already rolled back), so
+    // drop it and let the next call reconnect.
+    void rollbackAfter(SQLException e) {
+        if (discardIfBroken(e)) return;
+        try {
+            conn.rollback();
+        } catch (SQLException rollbackError) {
+            discard();
+        }
+    }
+    
+    boolean discardIfBroken(SQLException e) {
+        String state = e.getSQLState();
+        if (state != null && state.startsWith("08")) {
+            discard();
+            return true;
+        }
+        return false;
+    }
+    
+    private void discard() {
+        for (PreparedStatement ps : statements.values()) {
+            try { ps.close(); } catch (SQLException ignored) { }
+        }
+        statements.clear();
+        if (conn != null) {
+            try { conn.close(); } catch (SQLException ignored) { }
+            conn = null;
+        }
+    }
+    
+    long getHits() { return hits; }
+    long getMisses() { return misses; }
+    long getReconnects() { return reconnects; }
+    
+    double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+    
+    String stats() {
+        return String.format("%d statements cached, %d hits, %d misses (%.1f%% hit rate), %d reconnects",
+            statements.size(), hits, misses, getHitRate() * 100, reconnects);
+    }
+    
+    @Override
+    public void close() {
+        discard();
+    }
+}
+
+// ============================================================================
+// SHARED: CSV Parsing
+// ============================================================================
+class Csv {
+    // RFC 4180 fields: quoted fields may contain commas and "" for a quote
+    static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (ch == '"') {
+                    quoted = false;
+                } else {
+                    field.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(ch);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
 }
 
 // ============================================================================
@@ -42,12 +380,17 @@ class PartB_ProductCRUD {
     private static final String DB_USER = "root";
     private static final String DB_PASSWORD = "password";
     
-    private Connection conn;
+    private StatementCache statements;
     private Scanner sc;
     
     public PartB_ProductCRUD() throws SQLException {
-        conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-        conn.setAutoCommit(false);
+        // Server-side prepares so a reused statement skips parsing on MySQL too
+        statements = new StatementCache(() -> {
+            Connection conn = DriverManager.getConnection(
+                DB_URL + "?useServerPrepStmts=true&rewriteBatchedStatements=true", DB_USER, DB_PASSWORD);
+            conn.setAutoCommit(false);
+            return conn;
+        });
         sc = new Scanner(System.in);
     }
     
@@ -57,10 +400,11 @@ class PartB_ProductCRUD {
             System.out.println("    PART B: PRODUCT MANAGEMENT SYSTEM");
             System.out.println("=".repeat(50));
             System.out.println("1. Create - Add Product");
-            System.out.println("2. Read - View All Products");
+            System.out.println("2. Read - Search Products");
             System.out.println("3. Update - Modify Product");
             System.out.println("4. Delete - Remove Product");
-            System.out.println("5. Back to Main Menu");
+            System.out.println("5. Import - Load Products from CSV");
+            System.out.println("6. Back to Main Menu");
             System.out.println("=".repeat(50));
             System.out.print("Choice: ");
             
@@ -73,7 +417,8 @@ class PartB_ProductCRUD {
                     case 2: read(); break;
                     case 3: update(); break;
                     case 4: delete(); break;
-                    case 5: return;
+                    case 5: importCsv(); break;
+                    case 6: return;
                     default: System.out.println("Invalid choice!");
                 }
             } catch (Exception e) {
@@ -93,42 +438,73 @@ class PartB_ProductCRUD {
         System.out.print("Quantity: ");
         int qty = sc.nextInt();
         
-        try (PreparedStatement ps = conn.prepareStatement(
-                "INSERT INTO Product VALUES (?, ?, ?, ?)")) {
+        try {
+            PreparedStatement ps = statements.prepare(
+                "INSERT INTO Product (ProductID, ProductName, Price, Quantity) VALUES (?, ?, ?, ?)");
             ps.setInt(1, id);
             ps.setString(2, name);
             ps.setDouble(3, price);
             ps.setInt(4, qty);
             ps.executeUpdate();
-            conn.commit();
+            statements.commit();
             System.out.println("✓ Product added!");
         } catch (SQLException e) {
-            conn.rollback();
+            statements.rollbackAfter(e);
             throw e;
         }
     }
     
     private void read() throws SQLException {
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM Product")) {
-            
+        ProductFilter filter = new ProductFilter();
+        System.out.print("Name starts with (blank for any): ");
+        filter.namePrefix = sc.nextLine().trim();
+        System.out.print("Min price (blank for any): ");
+        String value = sc.nextLine().trim();
+        if (!value.isEmpty()) filter.minPrice = new BigDecimal(value);
+        System.out.print("Max price (blank for any): ");
+        value = sc.nextLine().trim();
+        if (!value.isEmpty()) filter.maxPrice = new BigDecimal(value);
+        System.out.print("Low stock - quantity at most (blank for any): ");
+        value = sc.nextLine().trim();
+        if (!value.isEmpty()) filter.maxQuantity = Integer.parseInt(value);
+        System.out.print("Sort by id/name/price/quantity [id]: ");
+        value = sc.nextLine().trim();
+        ProductSort sort = value.isEmpty() ? ProductSort.ID : ProductSort.valueOf(value.toUpperCase());
+        
+        Product after = null;
+        while (true) {
+            ProductPage page = findProducts(filter, sort, after, PAGE_SIZE);
             System.out.println("\n" + "=".repeat(75));
             System.out.printf("%-10s %-25s %-15s %-10s%n", 
                 "ID", "Name", "Price", "Quantity");
             System.out.println("=".repeat(75));
             
-            while (rs.next()) {
+            for (Product p : page.rows) {
                 System.out.printf("%-10d %-25s $%-14.2f %-10d%n",
-                    rs.getInt(1), rs.getString(2), rs.getDouble(3), rs.getInt(4));
+                    p.id, p.name, p.price, p.quantity);
             }
             System.out.println("=".repeat(75));
+            
+            if (!page.hasMore) break;
+            System.out.print("Enter for next page, Q to stop: ");
+            if (sc.nextLine().trim().equalsIgnoreCase("Q")) break;
+            after = page.last();
         }
     }
     
+    // No transaction is open while the operator types: the product is read
+    // and committed first, and the write only succeeds if nobody changed the
+    // row in between
     private void update() throws SQLException {
         System.out.print("Product ID to update: ");
         int id = sc.nextInt();
         sc.nextLine();
+        Product current = findProduct(id);
+        if (current == null) {
+            System.out.println("✗ Product not found!");
+            return;
+        }
+        printCurrent(current);
         System.out.print("New Name: ");
         String name = sc.nextLine();
         System.out.print("New Price: ");
@@ -136,150 +512,1414 @@ class PartB_ProductCRUD {
         System.out.print("New Quantity: ");
         int qty = sc.nextInt();
         
-        try (PreparedStatement ps = conn.prepareStatement(
-                "UPDATE Product SET ProductName=?, Price=?, Quantity=? WHERE ProductID=?")) {
+        WriteResult result = updateProduct(id, current.version, name, BigDecimal.valueOf(price), qty);
+        reportWrite(result, id, "updated");
+    }
+    
+    private void delete() throws SQLException {
+        System.out.print("Product ID to delete: ");
+        int id = sc.nextInt();
+        sc.nextLine();
+        Product current = findProduct(id);
+        if (current == null) {
+            System.out.println("✗ Product not found!");
+            return;
+        }
+        printCurrent(current);
+        System.out.print("Delete this product? (Y/N): ");
+        if (!sc.nextLine().trim().equalsIgnoreCase("Y")) return;
+        
+        reportWrite(deleteProduct(id, current.version), id, "deleted");
+    }
+    
+    private void printCurrent(Product p) {
+        System.out.printf("Current: %s, $%.2f, quantity %d (version %d)%n", p.name, p.price, p.quantity, p.version);
+    }
+    
+    private void reportWrite(WriteResult result, int id, String action) throws SQLException {
+        switch (result) {
+            case OK:
+                System.out.println("✓ Product " + action + "!");
+                break;
+            case NOT_FOUND:
+                System.out.println("✗ Product not found!");
+                break;
+            case CONFLICT:
+                Product now = findProduct(id);
+                System.out.println("✗ Someone else changed this product meanwhile; nothing was " + action + ".");
+                if (now != null) printCurrent(now);
+                else System.out.println("  It has since been deleted.");
+                break;
+        }
+    }
+    
+    // ------------------------------------------------------------------------
+    // Optimistic concurrency
+    // ------------------------------------------------------------------------
+    // Every write bumps Product.version (migration 002). updateProduct and
+    // deleteProduct only apply when the row still carries the version the
+    // caller read, so concurrent operators never block each other and never
+    // silently overwrite each other's changes.
+    enum WriteResult { OK, CONFLICT, NOT_FOUND }
+    
+    public Product findProduct(int id) throws SQLException {
+        try {
+            PreparedStatement ps = statements.prepare(
+                "SELECT ProductID, ProductName, Price, Quantity, version FROM Product WHERE ProductID=?");
+            ps.setInt(1, id);
+            Product p = null;
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    p = new Product(rs.getInt(1), rs.getString(2), rs.getBigDecimal(3), rs.getInt(4), rs.getInt(5));
+                }
+            }
+            statements.commit();
+            return p;
+        } catch (SQLException e) {
+            statements.rollbackAfter(e);
+            throw e;
+        }
+    }
+    
+    public WriteResult updateProduct(int id, int expectedVersion, String name, BigDecimal price, int qty)
+            throws SQLException {
+        try {
+            PreparedStatement ps = statements.prepare(
+                "UPDATE Product SET ProductName=?, Price=?, Quantity=?, version=version+1 "
+                + "WHERE ProductID=? AND version=?");
             ps.setString(1, name);
-            ps.setDouble(2, price);
+            ps.setBigDecimal(2, price);
             ps.setInt(3, qty);
             ps.setInt(4, id);
-            
+            ps.setInt(5, expectedVersion);
+            return finishWrite(ps.executeUpdate(), id);
+        } catch (SQLException e) {
+            statements.rollbackAfter(e);
+            throw e;
+        }
+    }
+    
+    public WriteResult deleteProduct(int id, int expectedVersion) throws SQLException {
+        try {
+            PreparedStatement ps = statements.prepare("DELETE FROM Product WHERE ProductID=? AND version=?");
+            ps.setInt(1, id);
+            ps.setInt(2, expectedVersion);
+            return finishWrite(ps.executeUpdate(), id);
+        } catch (SQLException e) {
+            statements.rollbackAfter(e);
+            throw e;
+        }
+    }
+    
+    // Zero rows means either a stale version or a missing row; one primary
+    // key lookup in the same short transaction tells them apart
+    private WriteResult finishWrite(int rows, int id) throws SQLException {
+        WriteResult result = WriteResult.OK;
+        if (rows == 0) {
+            PreparedStatement ps = statements.prepare("SELECT 1 FROM Product WHERE ProductID=?");
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                result = rs.next() ? WriteResult.CONFLICT : WriteResult.NOT_FOUND;
+            }
+        }
+        statements.commit();
+        return result;
+    }
+    
+    // ------------------------------------------------------------------------
+    // Product queries
+    // ------------------------------------------------------------------------
+    static class Product {
+        final int id;
+        final String name;
+        final BigDecimal price;
+        final int quantity;
+        final int version;
+        
+        Product(int id, String name, BigDecimal price, int quantity, int version) {
+            this.id = id;
+            this.name = name;
+            this.price = price;
+            this.quantity = quantity;
+            this.version = version;
+        }
+    }
+    
+    // Null or empty fields are not filtered on
+    static class ProductFilter {
+        String namePrefix;
+        BigDecimal minPrice;
+        BigDecimal maxPrice;
+        Integer maxQuantity;
+    }
+    
+    // Each sort column has an index (migration 001) and ProductID breaks ties,
+    // so (column, ProductID) is a unique keyset the index can seek to
+    enum ProductSort {
+        ID("ProductID"), NAME("ProductName"), PRICE("Price"), QUANTITY("Quantity");
+        
+        final String column;
+        
+        ProductSort(String column) {
+            this.column = column;
+        }
+        
+        Object keyOf(Product p) {
+            switch (this) {
+                case NAME: return p.name;
+                case PRICE: return p.price;
+                case QUANTITY: return p.quantity;
+                default: return p.id;
+            }
+        }
+    }
+    
+    static class ProductPage {
+        final List<Product> rows;
+        final boolean hasMore;
+        
+        ProductPage(List<Product> rows, boolean hasMore) {
+            this.rows = rows;
+            this.hasMore = hasMore;
+        }
+        
+        // Pass as `after` to fetch the next page
+        Product last() {
+            return rows.isEmpty() ? null : rows.get(rows.size() - 1);
+        }
+    }
+    
+    private static final int PAGE_SIZE = 50;
+    
+    // Keyset pagination: each page seeks past the last row of the previous
+    // one, so page 100 costs the same as page 1. Every filter is sargable
+    // (prefix LIKE, ranges), letting MySQL use the matching index.
+    public ProductPage findProducts(ProductFilter filter, ProductSort sort, Product after, int limit)
+            throws SQLException {
+        StringBuilder sql = new StringBuilder(
+            "SELECT ProductID, ProductName, Price, Quantity, version FROM Product WHERE 1=1");
+        List<Object> params = new ArrayList<>();
+        if (filter.namePrefix != null && !filter.namePrefix.isEmpty()) {
+            sql.append(" AND ProductName LIKE ?");
+            params.add(filter.namePrefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+        }
+        if (filter.minPrice != null) {
+            sql.append(" AND Price >= ?");
+            params.add(filter.minPrice);
+        }
+        if (filter.maxPrice != null) {
+            sql.append(" AND Price <= ?");
+            params.add(filter.maxPrice);
+        }
+        if (filter.maxQuantity != null) {
+            sql.append(" AND Quantity <= ?");
+            params.add(filter.maxQuantity);
+        }
+        if (after != null) {
+            if (sort == ProductSort.ID) {
+                sql.append(" AND ProductID > ?");
+            } else {
+                // Expanded rather than a row constructor, which older MySQL
+                // versions cannot turn into an index range
+                sql.append(" AND (").append(sort.column).append(" > ? OR (")
+                   .append(sort.column).append(" = ? AND ProductID > ?))");
+                params.add(sort.keyOf(after));
+                params.add(sort.keyOf(after));
+            }
+            params.add(after.id);
+        }
+        sql.append(" ORDER BY ");
+        if (sort != ProductSort.ID) sql.append(sort.column).append(", ");
+        sql.append("ProductID LIMIT ?");
+        params.add(limit + 1);
+        
+        // One cached statement per filter combination, at most a few dozen
+        PreparedStatement ps = statements.prepare(sql.toString());
+        for (int i = 0; i < params.size(); i++) {
+            ps.setObject(i + 1, params.get(i));
+        }
+        List<Product> rows = new ArrayList<>(limit + 1);
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                rows.add(new Product(rs.getInt(1), rs.getString(2), rs.getBigDecimal(3), rs.getInt(4), rs.getInt(5)));
+            }
+        }
+        // Read-only, but end the transaction so no snapshot stays open while
+        // the operator reads the page
+        statements.commit();
+        boolean hasMore = rows.size() > limit;
+        if (hasMore) rows.remove(limit);
+        return new ProductPage(rows, hasMore);
+    }
+    
+    // ------------------------------------------------------------------------
+    // Stock reservations
+    // ------------------------------------------------------------------------
+    // The check and the decrement are one statement, so there is no read to
+    // go stale and concurrent orders can never oversell. Both bump version so
+    // an operator editing the same product sees a conflict instead of
+    // overwriting the new quantity.
+    static final String RESERVE_SQL =
+        "UPDATE Product SET Quantity = Quantity - ?, version = version + 1 WHERE ProductID = ? AND Quantity >= ?";
+    static final String RELEASE_SQL =
+        "UPDATE Product SET Quantity = Quantity + ?, version = version + 1 WHERE ProductID = ?";
+    
+    public boolean reserve(int productId, int qty) throws SQLException {
+        return reserveAll(new int[]{productId}, new int[]{qty}, true)[0];
+    }
+    
+    public boolean release(int productId, int qty) throws SQLException {
+        requirePositive(qty);
+        try {
+            PreparedStatement ps = statements.prepare(RELEASE_SQL);
+            ps.setInt(1, qty);
+            ps.setInt(2, productId);
             int rows = ps.executeUpdate();
-            conn.commit();
-            
-            if (rows > 0) System.out.println("✓ Product updated!");
-            else System.out.println("✗ Product not found!");
+            statements.commit();
+            return rows > 0;
         } catch (SQLException e) {
-            conn.rollback();
+            statements.rollbackAfter(e);
             throw e;
         }
     }
     
-    private void delete() throws SQLException {
-        System.out.print("Product ID to delete: ");
-        int id = sc.nextInt();
+    // Sends every reservation in one batch (a single round trip with
+    // rewriteBatchedStatements) and returns which ones had enough stock.
+    // Rows are updated in ProductID order so two concurrent batches always
+    // lock in the same order and cannot deadlock. With allOrNothing, one
+    // shortfall rolls the whole batch back and every entry reports false.
+    public boolean[] reserveAll(int[] productIds, int[] quantities, boolean allOrNothing) throws SQLException {
+        if (productIds.length != quantities.length) {
+            throw new IllegalArgumentException("productIds and quantities differ in length");
+        }
+        Integer[] order = new Integer[productIds.length];
+        for (int i = 0; i < order.length; i++) {
+            requirePositive(quantities[i]);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(productIds[a], productIds[b]));
         
-        try (PreparedStatement ps = conn.prepareStatement(
-                "DELETE FROM Product WHERE ProductID=?")) {
+        PreparedStatement ps = statements.prepare(RESERVE_SQL);
+        boolean[] reserved = new boolean[order.length];
+        try {
+            for (int i : order) {
+                ps.setInt(1, quantities[i]);
+                ps.setInt(2, productIds[i]);
+                ps.setInt(3, quantities[i]);
+                ps.addBatch();
+            }
+            int[] counts = ps.executeBatch();
+            boolean all = true;
+            for (int k = 0; k < order.length; k++) {
+                reserved[order[k]] = counts[k] == 1;
+                all &= counts[k] == 1;
+            }
+            if (allOrNothing && !all) {
+                statements.rollback();
+                return new boolean[order.length];
+            }
+            statements.commit();
+            return reserved;
+        } catch (SQLException e) {
+            ps.clearBatch();
+            statements.rollbackAfter(e);
+            throw e;
+        }
+    }
+    
+    // Striped in-memory allocator for one hot SKU; see HotStockAllocator
+    public static HotStockAllocator hotStock(int productId, int stripes, int blockSize) throws SQLException {
+        return new HotStockAllocator(DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD),
+            productId, stripes, blockSize);
+    }
+    
+    private static void requirePositive(int qty) {
+        if (qty <= 0) throw new IllegalArgumentException("Quantity must be positive: " + qty);
+    }
+    
+    // ------------------------------------------------------------------------
+    // Schema migrations
+    // ------------------------------------------------------------------------
+    // Applied in order and recorded in SchemaMigration so each runs once:
+    //   java JDBCCompleteApplication migrate-inventory
+    private static final String[][] MIGRATIONS = {
+        {"001_product_query_indexes",
+            "CREATE INDEX idx_product_name ON Product (ProductName)",
+            "CREATE INDEX idx_product_price ON Product (Price)",
+            "CREATE INDEX idx_product_quantity ON Product (Quantity)"},
+        {"002_product_version",
+            "ALTER TABLE Product ADD COLUMN version INT NOT NULL DEFAULT 0"},
+    };
+    
+    // MySQL error codes for an index or column that already exists
+    private static final int ER_DUP_FIELDNAME = 1060;
+    private static final int ER_DUP_KEYNAME = 1061;
+    
+    public static void migrate() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS SchemaMigration ("
+                + "id VARCHAR(100) PRIMARY KEY, "
+                + "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+            Set<String> applied = new HashSet<>();
+            try (ResultSet rs = stmt.executeQuery("SELECT id FROM SchemaMigration")) {
+                while (rs.next()) applied.add(rs.getString(1));
+            }
+            
+            for (String[] migration : MIGRATIONS) {
+                if (applied.contains(migration[0])) continue;
+                // DDL commits implicitly in MySQL, so a half-applied migration
+                // is finished on the next run by skipping what already exists
+                for (int i = 1; i < migration.length; i++) {
+                    try {
+                        stmt.execute(migration[i]);
+                    } catch (SQLException e) {
+                        if (e.getErrorCode() != ER_DUP_KEYNAME && e.getErrorCode() != ER_DUP_FIELDNAME) throw e;
+                    }
+                }
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO SchemaMigration (id) VALUES (?)")) {
+                    ps.setString(1, migration[0]);
+                    ps.executeUpdate();
+                }
+                System.out.println("✓ Applied migration " + migration[0]);
+            }
+        }
+    }
+    
+    // ------------------------------------------------------------------------
+    // CSV bulk import
+    // ------------------------------------------------------------------------
+    enum DuplicateMode { SKIP, UPSERT, FAIL }
+    
+    static class ImportResult {
+        long rows, inserted, updated, skipped, rejected;
+        long failedLine;
+        String failure;
+        double seconds;
+        
+        long applied() { return inserted + updated + skipped; }
+    }
+    
+    private static class CsvProduct {
+        final long line;
+        final int id;
+        final String name;
+        final BigDecimal price;
+        final int quantity;
+        
+        CsvProduct(long line, int id, String name, BigDecimal price, int quantity) {
+            this.line = line;
+            this.id = id;
+            this.name = name;
+            this.price = price;
+            this.quantity = quantity;
+        }
+    }
+    
+    private static final int IMPORT_BATCH_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 20;
+    
+    private void importCsv() throws SQLException, IOException {
+        System.out.print("CSV file (ProductID,ProductName,Price,Quantity): ");
+        String file = sc.nextLine().trim();
+        System.out.print("On duplicate ProductID (skip/upsert/fail): ");
+        DuplicateMode mode = DuplicateMode.valueOf(sc.nextLine().trim().toUpperCase());
+        System.out.print("Commit every N rows [10000]: ");
+        String every = sc.nextLine().trim();
+        
+        ImportResult r = importCsv(Paths.get(file), mode, every.isEmpty() ? 10000 : Integer.parseInt(every));
+        System.out.println("\n" + "=".repeat(50));
+        System.out.printf("Rows read: %d, inserted: %d, updated: %d, skipped: %d, rejected: %d%n",
+            r.rows, r.inserted, r.updated, r.skipped, r.rejected);
+        System.out.printf("Time: %.2f s (%.0f rows/s)%n", r.seconds, r.rows / Math.max(r.seconds, 1e-9));
+        if (r.failure != null) {
+            System.out.println("✗ Stopped at line " + r.failedLine + ": " + r.failure);
+            System.out.println("  Everything before that line is committed; fix it and re-run from there.");
+        } else {
+            System.out.println("✓ Import complete!");
+        }
+        System.out.println("=".repeat(50));
+    }
+    
+    // Streams the file through a buffered NIO reader, so memory use does not
+    // grow with the file. Rows go out in batches of IMPORT_BATCH_SIZE, each
+    // under a savepoint; a batch that fails is rolled back to its savepoint
+    // and replayed row by row to find the offending rows. Commits every
+    // `commitEvery` rows, so an abort only loses the current interval; a
+    // batch is cut short when it would run past that boundary.
+    public ImportResult importCsv(Path file, DuplicateMode mode, int commitEvery) throws SQLException, IOException {
+        if (commitEvery < 1) {
+            throw new IllegalArgumentException("commitEvery must be at least 1, got " + commitEvery);
+        }
+        String sql = "INSERT INTO Product (ProductID, ProductName, Price, Quantity) VALUES (?, ?, ?, ?)";
+        if (mode == DuplicateMode.SKIP) {
+            sql += " ON DUPLICATE KEY UPDATE ProductID = ProductID";
+        } else if (mode == DuplicateMode.UPSERT) {
+            sql += " ON DUPLICATE KEY UPDATE ProductName = VALUES(ProductName),"
+                 + " Price = VALUES(Price), Quantity = VALUES(Quantity), version = version + 1";
+        }
+        
+        ImportResult result = new ImportResult();
+        long start = System.nanoTime();
+        // Separate connection so the rewrite option does not change the menu's
+        // statements; MySQL then sends each batch as multi-row INSERTs.
+        // useAffectedRows makes a skipped duplicate report 0 instead of 1
+        try (Connection importConn = DriverManager.getConnection(
+                 DB_URL + "?rewriteBatchedStatements=true&useAffectedRows=true", DB_USER, DB_PASSWORD);
+             BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            importConn.setAutoCommit(false);
+            try (PreparedStatement ps = importConn.prepareStatement(sql)) {
+                List<CsvProduct> chunk = new ArrayList<>(IMPORT_BATCH_SIZE);
+                long lineNo = 0;
+                long uncommitted = 0;
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lineNo++;
+                    if (line.trim().isEmpty() || (lineNo == 1 && isHeader(line))) continue;
+                    result.rows++;
+                    CsvProduct p = parseProduct(line, lineNo, result);
+                    if (p == null) continue;
+                    chunk.add(p);
+                    if (chunk.size() < IMPORT_BATCH_SIZE && uncommitted + chunk.size() < commitEvery) continue;
+                    
+                    uncommitted += chunk.size();
+                    boolean ok = flushChunk(importConn, ps, chunk, mode, result);
+                    if (!ok) break;
+                    if (uncommitted >= commitEvery) {
+                        importConn.commit();
+                        uncommitted = 0;
+                        double seconds = (System.nanoTime() - start) / 1e9;
+                        System.out.printf("  %d rows committed (%.0f rows/s)%n",
+                            result.applied(), result.rows / Math.max(seconds, 1e-9));
+                    }
+                }
+                if (result.failure == null && !chunk.isEmpty()) {
+                    flushChunk(importConn, ps, chunk, mode, result);
+                }
+                importConn.commit();
+            } catch (SQLException | RuntimeException e) {
+                importConn.rollback();
+                throw e;
+            }
+        }
+        result.seconds = (System.nanoTime() - start) / 1e9;
+        return result;
+    }
+    
+    // Returns false when mode is FAIL and a row was rejected by the database;
+    // the rows before it stay in the transaction
+    private boolean flushChunk(Connection c, PreparedStatement ps, List<CsvProduct> chunk,
+                               DuplicateMode mode, ImportResult result) throws SQLException {
+        Savepoint savepoint = c.setSavepoint();
+        try {
+            // Rewritten batches report SUCCESS_NO_INFO per row, so inserts are
+            // counted from the chunk's ID range instead
+            int minId = Integer.MAX_VALUE, maxId = Integer.MIN_VALUE;
+            for (CsvProduct p : chunk) {
+                bind(ps, p);
+                ps.addBatch();
+                minId = Math.min(minId, p.id);
+                maxId = Math.max(maxId, p.id);
+            }
+            long before = countProducts(c, minId, maxId);
+            ps.executeBatch();
+            long inserted = countProducts(c, minId, maxId) - before;
+            result.inserted += inserted;
+            if (mode == DuplicateMode.UPSERT) {
+                result.updated += chunk.size() - inserted;
+            } else {
+                result.skipped += chunk.size() - inserted;
+            }
+            c.releaseSavepoint(savepoint);
+            return true;
+        } catch (SQLException batchError) {
+            ps.clearBatch();
+            c.rollback(savepoint);
+            for (CsvProduct p : chunk) {
+                try {
+                    bind(ps, p);
+                    tally(ps.executeUpdate(), result);
+                } catch (SQLException rowError) {
+                    if (mode == DuplicateMode.FAIL) {
+                        result.failedLine = p.line;
+                        result.failure = rowError.getMessage();
+                        return false;
+                    }
+                    reject(result, p.line, rowError.getMessage());
+                }
+            }
+            return true;
+        } finally {
+            chunk.clear();
+        }
+    }
+    
+    private static void bind(PreparedStatement ps, CsvProduct p) throws SQLException {
+        ps.setInt(1, p.id);
+        ps.setString(2, p.name);
+        ps.setBigDecimal(3, p.price);
+        ps.setInt(4, p.quantity);
+    }
+    
+    // Rows of the chunk's ID range already in the table, as this transaction
+    // sees them
+    private static long countProducts(Connection c, int minId, int maxId) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                 "SELECT COUNT(*) FROM Product WHERE ProductID BETWEEN ? AND ?")) {
+            ps.setInt(1, minId);
+            ps.setInt(2, maxId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+    
+    // With useAffectedRows MySQL reports 1 for an insert, 2 for an upsert that
+    // changed the row and 0 for a duplicate left as it was
+    private static void tally(int count, ImportResult result) {
+        if (count == 1) result.inserted++;
+        else if (count == 2) result.updated++;
+        else result.skipped++;
+    }
+    
+    private static void reject(ImportResult result, long line, String reason) {
+        if (result.rejected++ < MAX_REPORTED_ERRORS) {
+            System.out.println("  ✗ Line " + line + ": " + reason);
+        }
+    }
+    
+    private static boolean isHeader(String line) {
+        List<String> fields = Csv.parseLine(line);
+        try {
+            Integer.parseInt(fields.get(0).trim());
+            return false;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+    
+    // Same limits as the Product table: DECIMAL(10, 2) price, VARCHAR(100) name
+    private static CsvProduct parseProduct(String line, long lineNo, ImportResult result) {
+        List<String> f = Csv.parseLine(line);
+        if (f.size() != 4) {
+            reject(result, lineNo, "expected 4 fields, found " + f.size());
+            return null;
+        }
+        try {
+            int id = Integer.parseInt(f.get(0).trim());
+            String name = f.get(1).trim();
+            BigDecimal price = new BigDecimal(f.get(2).trim());
+            int qty = Integer.parseInt(f.get(3).trim());
+            if (id <= 0) {
+                reject(result, lineNo, "ProductID must be positive");
+            } else if (name.isEmpty() || name.length() > 100) {
+                reject(result, lineNo, "ProductName must be 1-100 characters");
+            } else if (price.signum() < 0 || price.scale() > 2 || price.precision() - price.scale() > 8) {
+                reject(result, lineNo, "Price must be 0 to 99999999.99 with at most 2 decimals");
+            } else if (qty < 0) {
+                reject(result, lineNo, "Quantity cannot be negative");
+            } else {
+                return new CsvProduct(lineNo, id, name, price, qty);
+            }
+        } catch (NumberFormatException e) {
+            reject(result, lineNo, "not a number: " + e.getMessage());
+        }
+        return null;
+    }
+    
+    public String statementStats() {
+        return statements.stats();
+    }
+    
+    public void close() throws SQLException {
+        System.out.println("Statement cache: " + statements.stats());
+        statements.close();
+    }
+}
+
+// ============================================================================
+// PART B: Hot SKU Stock Allocator
+// ============================================================================
+// For flash sales on a single product, where every reserve() would queue on
+// the same row lock. Units are moved out of Product.Quantity in blocks and
+// split across stripes; threads reserve from a stripe with a CAS and only
+// go back to the database when the stripes run dry. Units sitting in the
+// stripes are already deducted from Product.Quantity, and close() returns
+// whatever is left. If the process dies first they stay deducted until the
+// next stock count.
+class HotStockAllocator implements AutoCloseable {
+    private final Connection conn;
+    private final int productId;
+    private final int blockSize;
+    private final AtomicInteger[] stripes;
+    private final PreparedStatement take;
+    private final PreparedStatement giveBack;
+    private long refills;
+    private volatile boolean closed;
+    
+    HotStockAllocator(Connection conn, int productId, int stripes, int blockSize) throws SQLException {
+        this.conn = conn;
+        this.productId = productId;
+        this.blockSize = Math.max(1, blockSize);
+        this.stripes = new AtomicInteger[Math.max(1, stripes)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new AtomicInteger();
+        }
+        this.take = conn.prepareStatement(PartB_ProductCRUD.RESERVE_SQL);
+        this.giveBack = conn.prepareStatement(PartB_ProductCRUD.RELEASE_SQL);
+    }
+    
+    public boolean reserve(int qty) throws SQLException {
+        if (qty <= 0) throw new IllegalArgumentException("Quantity must be positive: " + qty);
+        int home = ThreadLocalRandom.current().nextInt(stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            AtomicInteger stripe = stripes[(home + i) % stripes.length];
+            for (int units = stripe.get(); units >= qty; units = stripe.get()) {
+                if (stripe.compareAndSet(units, units - qty)) return true;
+            }
+        }
+        return refillAndReserve(qty, home);
+    }
+    
+    // Cancelled orders go back to the local stripes, not to the database
+    public void release(int qty) {
+        if (qty <= 0) throw new IllegalArgumentException("Quantity must be positive: " + qty);
+        if (closed) throw new IllegalStateException("Allocator is closed");
+        stripes[ThreadLocalRandom.current().nextInt(stripes.length)].addAndGet(qty);
+    }
+    
+    // Gathers what is left in the stripes (it may be spread too thin for
+    // qty), tops it up from the database if needed, keeps qty for the caller
+    // and spreads the rest again
+    private synchronized boolean refillAndReserve(int qty, int home) throws SQLException {
+        if (closed) throw new IllegalStateException("Allocator is closed");
+        int units = 0;
+        for (AtomicInteger stripe : stripes) {
+            units += stripe.getAndSet(0);
+        }
+        if (units < qty) {
+            int missing = qty - units;
+            int taken = take(Math.max(blockSize, missing));
+            if (taken == 0) taken = take(missing);
+            if (taken == 0) {
+                spread(units, home);
+                return false;
+            }
+            units += taken;
+            refills++;
+        }
+        spread(units - qty, home);
+        return true;
+    }
+    
+    private int take(int units) throws SQLException {
+        take.setInt(1, units);
+        take.setInt(2, productId);
+        take.setInt(3, units);
+        return take.executeUpdate() == 1 ? units : 0;
+    }
+    
+    private void spread(int units, int home) {
+        int share = units / stripes.length;
+        for (AtomicInteger stripe : stripes) {
+            stripe.addAndGet(share);
+        }
+        stripes[home].addAndGet(units - share * stripes.length);
+    }
+    
+    public int getLocalUnits() {
+        int units = 0;
+        for (AtomicInteger stripe : stripes) {
+            units += stripe.get();
+        }
+        return units;
+    }
+    
+    public synchronized long getRefills() {
+        return refills;
+    }
+    
+    @Override
+    public synchronized void close() throws SQLException {
+        if (closed) return;
+        closed = true;
+        try {
+            int units = 0;
+            for (AtomicInteger stripe : stripes) {
+                units += stripe.getAndSet(0);
+            }
+            if (units > 0) {
+                giveBack.setInt(1, units);
+                giveBack.setInt(2, productId);
+                giveBack.executeUpdate();
+            }
+        } finally {
+            conn.close();
+        }
+    }
+}
+
+// ============================================================================
+// PART C: Student Management with MVC Architecture
+// ============================================================================
+
+// MODEL
+class Student {
+    private int studentId;
+    private String name;
+    private String department;
+    private double marks;
+    
+    public Student(int studentId, String name, String department, double marks) {
+        this.studentId = studentId;
+        this.name = name;
+        this.department = department;
+        this.marks = marks;
+    }
+    
+    public int getStudentId() { return studentId; }
+    public String getName() { return name; }
+    public String getDepartment() { return department; }
+    public double getMarks() { return marks; }
+    
+    public boolean isValid() {
+        return studentId > 0 && name != null && !name.trim().isEmpty() &&
+               department != null && marks >= 0 && marks <= 100;
+    }
+}
+
+// CONTROLLER
+class StudentController implements AutoCloseable {
+    private static final String DB_URL = "jdbc:mysql://localhost:3306/school_db";
+    private static final String DB_USER = "root";
+    private static final String DB_PASSWORD = "password";
+    
+    private static final String INSERT_SQL = "INSERT INTO Student VALUES (?, ?, ?, ?)";
+    
+    private StatementCache statements;
+    private StudentAnalytics analytics;
+    private StudentLeaderboard leaderboard;
+    
+    public StudentController() throws SQLException {
+        statements = new StatementCache(() -> DriverManager.getConnection(
+            DB_URL + "?useServerPrepStmts=true&rewriteBatchedStatements=true", DB_USER, DB_PASSWORD));
+        analytics = new StudentAnalytics(statements);
+    }
+    
+    // Cached department reports; every successful write below invalidates them
+    public StudentAnalytics analytics() {
+        return analytics;
+    }
+    
+    // Loaded on first use, then kept current by the writes below
+    public StudentLeaderboard leaderboard() throws SQLException {
+        if (leaderboard == null) leaderboard = StudentLeaderboard.load(statements);
+        return leaderboard;
+    }
+    
+    public boolean addStudent(Student s) {
+        if (!s.isValid()) return false;
+        
+        try {
+            PreparedStatement ps = statements.prepare(INSERT_SQL);
+            ps.setInt(1, s.getStudentId());
+            ps.setString(2, s.getName());
+            ps.setString(3, s.getDepartment());
+            ps.setDouble(4, s.getMarks());
+            boolean added = ps.executeUpdate() > 0;
+            if (added) {
+                analytics.invalidate();
+                if (leaderboard != null) leaderboard.put(s.getStudentId(), s.getDepartment(), s.getMarks());
+            }
+            return added;
+        } catch (SQLException e) {
+            statements.discardIfBroken(e);
+            System.err.println("Error: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    public void displayAllStudents() {
+        try (ResultSet rs = statements.prepare("SELECT * FROM Student ORDER BY StudentID").executeQuery()) {
+            
+            System.out.println("\n" + "=".repeat(80));
+            System.out.printf("%-10s %-25s %-20s %-10s%n", 
+                "ID", "Name", "Department", "Marks");
+            System.out.println("=".repeat(80));
+            
+            while (rs.next()) {
+                System.out.printf("%-10d %-25s %-20s %-10.2f%n",
+                    rs.getInt(1), rs.getString(2), rs.getString(3), rs.getDouble(4));
+            }
+            System.out.println("=".repeat(80));
+        } catch (SQLException e) {
+            statements.discardIfBroken(e);
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+    
+    public boolean updateStudent(int id, String name, String dept, double marks) {
+        try {
+            PreparedStatement ps = statements.prepare(
+                "UPDATE Student SET Name=?, Department=?, Marks=? WHERE StudentID=?");
+            ps.setString(1, name);
+            ps.setString(2, dept);
+            ps.setDouble(3, marks);
+            ps.setInt(4, id);
+            boolean updated = ps.executeUpdate() > 0;
+            if (updated) {
+                analytics.invalidate();
+                if (leaderboard != null) leaderboard.put(id, dept, marks);
+            }
+            return updated;
+        } catch (SQLException e) {
+            statements.discardIfBroken(e);
+            System.err.println("Error: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    public boolean deleteStudent(int id) {
+        try {
+            PreparedStatement ps = statements.prepare("DELETE FROM Student WHERE StudentID=?");
             ps.setInt(1, id);
-            int rows = ps.executeUpdate();
+            boolean deleted = ps.executeUpdate() > 0;
+            if (deleted) {
+                analytics.invalidate();
+                if (leaderboard != null) leaderboard.remove(id);
+            }
+            return deleted;
+        } catch (SQLException e) {
+            statements.discardIfBroken(e);
+            System.err.println("Error: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    // ------------------------------------------------------------------------
+    // Batch ingestion
+    // ------------------------------------------------------------------------
+    enum AddStatus { ADDED, INVALID, DUPLICATE_KEY, ERROR }
+    
+    static class AddResult {
+        final Student student;
+        final AddStatus status;
+        final String message;
+        
+        AddResult(Student student, AddStatus status, String message) {
+            this.student = student;
+            this.status = status;
+            this.message = message;
+        }
+    }
+    
+    // MySQL: duplicate entry for a key, and CHECK constraint violated
+    private static final int ER_DUP_ENTRY = 1062;
+    private static final int ER_CHECK_CONSTRAINT_VIOLATED = 3819;
+    
+    // Inserts every valid student in batches of batchSize, all in one
+    // transaction that commits at the end. A batch that fails is rolled back
+    // to its savepoint and replayed row by row, so each student gets its own
+    // result (in input order) and one bad row does not sink the rest.
+    public List<AddResult> addStudents(Iterable<Student> students, int batchSize) throws SQLException {
+        List<AddResult> results = new ArrayList<>();
+        List<Student> batch = new ArrayList<>(batchSize);
+        List<Integer> slots = new ArrayList<>(batchSize);
+        Connection conn = statements.connection();
+        conn.setAutoCommit(false);
+        try {
+            PreparedStatement ps = statements.prepare(INSERT_SQL);
+            for (Student s : students) {
+                if (!s.isValid()) {
+                    results.add(new AddResult(s, AddStatus.INVALID, invalidReason(s)));
+                    continue;
+                }
+                // Placeholder, filled in once the batch has run
+                results.add(null);
+                slots.add(results.size() - 1);
+                batch.add(s);
+                bind(ps, s);
+                ps.addBatch();
+                if (batch.size() >= batchSize) {
+                    flushBatch(conn, ps, batch, slots, results);
+                }
+            }
+            if (!batch.isEmpty()) {
+                flushBatch(conn, ps, batch, slots, results);
+            }
             conn.commit();
-            
-            if (rows > 0) System.out.println("✓ Product deleted!");
-            else System.out.println("✗ Product not found!");
+            analytics.invalidate();
+            if (leaderboard != null) {
+                for (AddResult r : results) {
+                    if (r.status == AddStatus.ADDED) {
+                        leaderboard.put(r.student.getStudentId(), r.student.getDepartment(), r.student.getMarks());
+                    }
+                }
+            }
+            return results;
         } catch (SQLException e) {
+            statements.rollbackAfter(e);
+            throw e;
+        } catch (RuntimeException e) {
+            // The source failed part way (e.g. a lazily read file); turning
+            // autocommit back on below would otherwise commit what was sent
+            statements.prepare(INSERT_SQL).clearBatch();
             conn.rollback();
             throw e;
+        } finally {
+            if (!conn.isClosed()) conn.setAutoCommit(true);
+        }
+    }
+    
+    private void flushBatch(Connection conn, PreparedStatement ps, List<Student> batch,
+                            List<Integer> slots, List<AddResult> results) throws SQLException {
+        Savepoint savepoint = conn.setSavepoint();
+        try {
+            ps.executeBatch();
+            conn.releaseSavepoint(savepoint);
+            for (int i = 0; i < batch.size(); i++) {
+                results.set(slots.get(i), new AddResult(batch.get(i), AddStatus.ADDED, null));
+            }
+        } catch (BatchUpdateException batchError) {
+            ps.clearBatch();
+            conn.rollback(savepoint);
+            for (int i = 0; i < batch.size(); i++) {
+                Student s = batch.get(i);
+                try {
+                    bind(ps, s);
+                    ps.executeUpdate();
+                    results.set(slots.get(i), new AddResult(s, AddStatus.ADDED, null));
+                } catch (SQLException rowError) {
+                    if (statements.discardIfBroken(rowError)) throw rowError;
+                    results.set(slots.get(i), new AddResult(s, classify(rowError), rowError.getMessage()));
+                }
+            }
+        } finally {
+            batch.clear();
+            slots.clear();
+        }
+    }
+    
+    private static void bind(PreparedStatement ps, Student s) throws SQLException {
+        ps.setInt(1, s.getStudentId());
+        ps.setString(2, s.getName());
+        ps.setString(3, s.getDepartment());
+        ps.setDouble(4, s.getMarks());
+    }
+    
+    // MySQL error codes first, then the standard SQLStates other drivers use
+    private static AddStatus classify(SQLException e) {
+        if (e.getErrorCode() == ER_DUP_ENTRY || "23505".equals(e.getSQLState())) return AddStatus.DUPLICATE_KEY;
+        if (e.getErrorCode() == ER_CHECK_CONSTRAINT_VIOLATED || "23513".equals(e.getSQLState())) return AddStatus.INVALID;
+        return AddStatus.ERROR;
+    }
+    
+    private static String invalidReason(Student s) {
+        if (s.getMarks() < 0 || s.getMarks() > 100) return "Marks must be between 0 and 100";
+        if (s.getStudentId() <= 0) return "StudentID must be positive";
+        return "Name and department are required";
+    }
+    
+    public String statementStats() {
+        return statements.stats();
+    }
+    
+    @Override
+    public void close() throws SQLException {
+        System.out.println("Statement cache: " + statements.stats());
+        statements.close();
+    }
+}
+
+// ANALYTICS
+// Per-department report for school_db. Count, average, min and max are
+// GROUP BY aggregates; top-N and percentiles use ROW_NUMBER() (MySQL 8+).
+// Percentiles have no MySQL aggregate, so each mark is ranked within its
+// department and only the rows at the wanted ranks come back. Results are
+// cached until the controller reports a write and handed out read-only.
+class StudentAnalytics {
+    static final int[] PERCENTILES = {50, 90, 99};
+    
+    static class DepartmentStats {
+        final String department;
+        final long count;
+        final double average, min, max;
+        private final double[] percentiles = new double[PERCENTILES.length];
+        
+        DepartmentStats(String department, long count, double average, double min, double max) {
+            this.department = department;
+            this.count = count;
+            this.average = average;
+            this.min = min;
+            this.max = max;
+        }
+        
+        // Mark at PERCENTILES[i]
+        double percentile(int i) {
+            return percentiles[i];
+        }
+    }
+    
+    static class RankedStudent {
+        final int rank;
+        final int studentId;
+        final String name;
+        final double marks;
+        
+        RankedStudent(int rank, int studentId, String name, double marks) {
+            this.rank = rank;
+            this.studentId = studentId;
+            this.name = name;
+            this.marks = marks;
+        }
+    }
+    
+    private final StatementCache statements;
+    private Map<String, DepartmentStats> stats;
+    // Only the largest N asked for is kept; smaller N are sliced from it
+    private Map<String, List<RankedStudent>> top;
+    private int topN;
+    private long hits, misses;
+    
+    StudentAnalytics(StatementCache statements) {
+        this.statements = statements;
+    }
+    
+    void invalidate() {
+        stats = null;
+        top = null;
+        topN = 0;
+    }
+    
+    // Departments in name order
+    public Map<String, DepartmentStats> departmentStats() throws SQLException {
+        if (stats != null) {
+            hits++;
+            return stats;
+        }
+        misses++;
+        Map<String, DepartmentStats> result = new TreeMap<>();
+        PreparedStatement ps = statements.prepare(
+            "SELECT Department, COUNT(*), AVG(Marks), MIN(Marks), MAX(Marks) FROM Student GROUP BY Department");
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                result.put(rs.getString(1), new DepartmentStats(rs.getString(1),
+                    rs.getLong(2), rs.getDouble(3), rs.getDouble(4), rs.getDouble(5)));
+            }
+        }
+        addPercentiles(result);
+        stats = Collections.unmodifiableMap(result);
+        return stats;
+    }
+    
+    public Map<String, List<RankedStudent>> topStudents(int n) throws SQLException {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be at least 1, got " + n);
         }
+        if (top != null && n <= topN) {
+            hits++;
+            return n == topN ? top : slice(n);
+        }
+        misses++;
+        Map<String, List<RankedStudent>> result = new TreeMap<>();
+        PreparedStatement ps = statements.prepare(
+            "SELECT Department, rn, StudentID, Name, Marks FROM ("
+            + "SELECT Department, StudentID, Name, Marks, ROW_NUMBER() OVER "
+            + "(PARTITION BY Department ORDER BY Marks DESC, StudentID) AS rn FROM Student) ranked "
+            + "WHERE rn <= ? ORDER BY Department, rn");
+        ps.setInt(1, n);
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                result.computeIfAbsent(rs.getString(1), d -> new ArrayList<>())
+                    .add(new RankedStudent(rs.getInt(2), rs.getInt(3), rs.getString(4), rs.getDouble(5)));
+            }
+        }
+        result.replaceAll((department, students) -> Collections.unmodifiableList(students));
+        top = Collections.unmodifiableMap(result);
+        topN = n;
+        return top;
     }
     
-    public void close() throws SQLException {
-        if (conn != null) conn.close();
+    // ROW_NUMBER() ranks are unique, so the first n of each cached list are
+    // exactly what "rn <= n" would return
+    private Map<String, List<RankedStudent>> slice(int n) {
+        Map<String, List<RankedStudent>> result = new TreeMap<>();
+        for (Map.Entry<String, List<RankedStudent>> e : top.entrySet()) {
+            List<RankedStudent> students = e.getValue();
+            result.put(e.getKey(), students.subList(0, Math.min(n, students.size())));
+        }
+        return Collections.unmodifiableMap(result);
     }
-}
-
-// ============================================================================
-// PART C: Student Management with MVC Architecture
-// ============================================================================
-
-// MODEL
-class Student {
-    private int studentId;
-    private String name;
-    private String department;
-    private double marks;
     
-    public Student(int studentId, String name, String department, double marks) {
-        this.studentId = studentId;
-        this.name = name;
-        this.department = department;
-        this.marks = marks;
-    }
+    // Nearest rank: the ceil(p% of count)-th lowest mark, and at least the
+    // first. Integer arithmetic, so MySQL and Java agree on every rank.
+    private static final String PERCENTILE_SQL = percentileSql();
     
-    public int getStudentId() { return studentId; }
-    public String getName() { return name; }
-    public String getDepartment() { return department; }
-    public double getMarks() { return marks; }
+    private static String percentileSql() {
+        StringBuilder ranks = new StringBuilder();
+        for (int p : PERCENTILES) {
+            if (ranks.length() > 0) ranks.append(", ");
+            ranks.append("GREATEST(FLOOR((cnt * ").append(p).append(" + 99) / 100), 1)");
+        }
+        return "SELECT Department, rn, cnt, Marks FROM ("
+            + "SELECT Department, Marks, ROW_NUMBER() OVER (PARTITION BY Department ORDER BY Marks) AS rn, "
+            + "COUNT(*) OVER (PARTITION BY Department) AS cnt FROM Student) ranked "
+            + "WHERE rn IN (" + ranks + ")";
+    }
     
-    public boolean isValid() {
-        return studentId > 0 && name != null && !name.trim().isEmpty() &&
-               department != null && marks >= 0 && marks <= 100;
+    private static long nearestRank(int percentile, long count) {
+        return Math.max((count * percentile + 99) / 100, 1);
     }
-}
-
-// CONTROLLER
-class StudentController {
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/school_db";
-    private static final String DB_USER = "root";
-    private static final String DB_PASSWORD = "password";
     
-    private Connection conn;
+    // At most PERCENTILES.length rows per department cross the wire
+    private void addPercentiles(Map<String, DepartmentStats> result) throws SQLException {
+        try (ResultSet rs = statements.prepare(PERCENTILE_SQL).executeQuery()) {
+            while (rs.next()) {
+                DepartmentStats s = result.get(rs.getString(1));
+                if (s == null) continue;   // student added between the two queries
+                long rn = rs.getLong(2);
+                long count = rs.getLong(3);
+                for (int i = 0; i < PERCENTILES.length; i++) {
+                    if (nearestRank(PERCENTILES[i], count) == rn) {
+                        s.percentiles[i] = rs.getDouble(4);
+                    }
+                }
+            }
+        }
+    }
     
-    public StudentController() throws SQLException {
-        conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+    public String cacheStats() {
+        return String.format("%d hits, %d misses", hits, misses);
     }
+}
+
+// LEADERBOARD
+// In-memory ranking per department, loaded once and then kept current by
+// StudentController's writes. Marks are DECIMAL(5,2) between 0 and 100, so
+// each department keeps a Fenwick tree over the 10,001 possible marks in
+// hundredths: rank and range counts are O(log 10001), and top-N and range
+// listings jump straight to the next occupied mark. Students are stored as
+// int IDs in per-mark arrays plus a primitive ID -> (department, marks)
+// map, so nothing is boxed per student. Ties on marks list lower IDs first.
+class StudentLeaderboard {
+    private static final int MAX_HUNDREDTHS = 10000;
     
-    public boolean addStudent(Student s) {
-        if (!s.isValid()) return false;
+    private static class Board {
+        final int index;
+        final int[] tree = new int[MAX_HUNDREDTHS + 2];        // 1-based Fenwick over marks
+        final int[][] ids = new int[MAX_HUNDREDTHS + 1][];     // sorted IDs per mark
+        final int[] counts = new int[MAX_HUNDREDTHS + 1];
+        int size;
         
-        try (PreparedStatement ps = conn.prepareStatement(
-                "INSERT INTO Student VALUES (?, ?, ?, ?)")) {
-            ps.setInt(1, s.getStudentId());
-            ps.setString(2, s.getName());
-            ps.setString(3, s.getDepartment());
-            ps.setDouble(4, s.getMarks());
-            return ps.executeUpdate() > 0;
-        } catch (SQLException e) {
-            System.err.println("Error: " + e.getMessage());
-            return false;
+        Board(int index) {
+            this.index = index;
+        }
+        
+        void add(int id, int h) {
+            int[] bucket = ids[h];
+            int n = counts[h];
+            if (bucket == null) bucket = ids[h] = new int[2];
+            else if (n == bucket.length) bucket = ids[h] = Arrays.copyOf(bucket, n * 2);
+            int at = -Arrays.binarySearch(bucket, 0, n, id) - 1;
+            System.arraycopy(bucket, at, bucket, at + 1, n - at);
+            bucket[at] = id;
+            counts[h]++;
+            size++;
+            for (int i = h + 1; i < tree.length; i += i & -i) tree[i]++;
+        }
+        
+        void remove(int id, int h) {
+            int[] bucket = ids[h];
+            int n = counts[h];
+            int at = Arrays.binarySearch(bucket, 0, n, id);
+            System.arraycopy(bucket, at + 1, bucket, at, n - at - 1);
+            if (--counts[h] == 0) ids[h] = null;
+            size--;
+            for (int i = h + 1; i < tree.length; i += i & -i) tree[i]--;
+        }
+        
+        // Students with marks <= h
+        int atOrBelow(int h) {
+            int sum = 0;
+            for (int i = Math.min(h, MAX_HUNDREDTHS) + 1; i > 0; i -= i & -i) sum += tree[i];
+            return sum;
+        }
+        
+        // Mark holding the k-th lowest student (1-based)
+        int kthLowest(int k) {
+            int pos = 0;
+            for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+                if (pos + step < tree.length && tree[pos + step] < k) {
+                    pos += step;
+                    k -= tree[pos];
+                }
+            }
+            return pos;
+        }
+        
+        // Best first, starting from the k-th lowest student and walking down
+        int[] collect(int k, int limit) {
+            int[] out = new int[Math.max(0, Math.min(limit, k))];
+            int filled = 0;
+            while (filled < out.length) {
+                int h = kthLowest(k);
+                int take = Math.min(counts[h], out.length - filled);
+                System.arraycopy(ids[h], 0, out, filled, take);
+                filled += take;
+                k -= counts[h];
+            }
+            return out;
         }
     }
     
-    public void displayAllStudents() {
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM Student ORDER BY StudentID")) {
-            
-            System.out.println("\n" + "=".repeat(80));
-            System.out.printf("%-10s %-25s %-20s %-10s%n", 
-                "ID", "Name", "Department", "Marks");
-            System.out.println("=".repeat(80));
-            
+    private final Map<String, Board> boards = new HashMap<>();
+    private final List<Board> byIndex = new ArrayList<>();
+    private final StudentIndex index = new StudentIndex();
+    
+    static StudentLeaderboard load(StatementCache statements) throws SQLException {
+        StudentLeaderboard board = new StudentLeaderboard();
+        try (ResultSet rs = statements.prepare("SELECT StudentID, Department, Marks FROM Student").executeQuery()) {
             while (rs.next()) {
-                System.out.printf("%-10d %-25s %-20s %-10.2f%n",
-                    rs.getInt(1), rs.getString(2), rs.getString(3), rs.getDouble(4));
+                board.put(rs.getInt(1), rs.getString(2), rs.getDouble(3));
             }
-            System.out.println("=".repeat(80));
-        } catch (SQLException e) {
-            System.err.println("Error: " + e.getMessage());
         }
+        return board;
     }
     
-    public boolean updateStudent(int id, String name, String dept, double marks) {
-        try (PreparedStatement ps = conn.prepareStatement(
-                "UPDATE Student SET Name=?, Department=?, Marks=? WHERE StudentID=?")) {
-            ps.setString(1, name);
-            ps.setString(2, dept);
-            ps.setDouble(3, marks);
-            ps.setInt(4, id);
-            return ps.executeUpdate() > 0;
-        } catch (SQLException e) {
-            System.err.println("Error: " + e.getMessage());
-            return false;
+    public synchronized void put(int studentId, String department, double marks) {
+        remove(studentId);
+        int h = (int) Math.max(0, Math.min(MAX_HUNDREDTHS, Math.round(marks * 100)));
+        Board board = boards.get(department);
+        if (board == null) {
+            board = new Board(byIndex.size());
+            boards.put(department, board);
+            byIndex.add(board);
         }
+        board.add(studentId, h);
+        index.put(studentId, (long) board.index << 32 | h);
     }
     
-    public boolean deleteStudent(int id) {
-        try (PreparedStatement ps = conn.prepareStatement(
-                "DELETE FROM Student WHERE StudentID=?")) {
-            ps.setInt(1, id);
-            return ps.executeUpdate() > 0;
-        } catch (SQLException e) {
-            System.err.println("Error: " + e.getMessage());
-            return false;
-        }
+    public synchronized void remove(int studentId) {
+        long entry = index.remove(studentId);
+        if (entry < 0) return;
+        byIndex.get((int) (entry >>> 32)).remove(studentId, (int) entry);
     }
     
-    public void close() throws SQLException {
-        if (conn != null) conn.close();
+    // 1-based rank within the student's department (equal marks share a
+    // rank), or 0 if the student is unknown
+    public synchronized int rank(int studentId) {
+        long entry = index.get(studentId);
+        if (entry < 0) return 0;
+        Board board = byIndex.get((int) (entry >>> 32));
+        return board.size - board.atOrBelow((int) entry) + 1;
+    }
+    
+    public synchronized double marksOf(int studentId) {
+        long entry = index.get(studentId);
+        return entry < 0 ? Double.NaN : (int) entry / 100.0;
+    }
+    
+    // Student IDs, best first
+    public synchronized int[] top(String department, int n) {
+        Board board = boards.get(department);
+        return board == null ? new int[0] : board.collect(board.size, n);
+    }
+    
+    // Student IDs with minMarks <= marks <= maxMarks, best first
+    public synchronized int[] range(String department, double minMarks, double maxMarks) {
+        Board board = boards.get(department);
+        if (board == null) return new int[0];
+        int lo = (int) Math.ceil(minMarks * 100 - 1e-9);
+        int hi = (int) Math.floor(maxMarks * 100 + 1e-9);
+        if (hi < 0 || lo > hi) return new int[0];
+        int below = lo <= 0 ? 0 : board.atOrBelow(lo - 1);
+        int atOrBelowHi = board.atOrBelow(hi);
+        return board.collect(atOrBelowHi, atOrBelowHi - below);
+    }
+    
+    public synchronized int size(String department) {
+        Board board = boards.get(department);
+        return board == null ? 0 : board.size;
+    }
+    
+    // Open-addressing int -> long map; values are never negative, so -1
+    // marks an empty slot
+    private static class StudentIndex {
+        private int[] keys = new int[1024];
+        private long[] values = newValues(1024);
+        private int size;
+        
+        private static long[] newValues(int capacity) {
+            long[] v = new long[capacity];
+            Arrays.fill(v, -1);
+            return v;
+        }
+        
+        private static int home(int key, int mask) {
+            int h = key * 0x9E3779B9;
+            return (h ^ h >>> 16) & mask;
+        }
+        
+        private int slot(int key) {
+            int mask = keys.length - 1;
+            int i = home(key, mask);
+            while (values[i] >= 0 && keys[i] != key) i = (i + 1) & mask;
+            return i;
+        }
+        
+        long get(int key) {
+            return values[slot(key)];
+        }
+        
+        void put(int key, long value) {
+            int i = slot(key);
+            if (values[i] < 0) {
+                if (++size * 2 > keys.length) {
+                    grow();
+                    i = slot(key);
+                }
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+        
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        long remove(int key) {
+            int i = slot(key);
+            long old = values[i];
+            if (old < 0) return -1;
+            size--;
+            int mask = keys.length - 1;
+            int j = i;
+            while (true) {
+                values[i] = -1;
+                int home;
+                do {
+                    j = (j + 1) & mask;
+                    if (values[j] < 0) return old;
+                    home = home(keys[j], mask);
+                } while (i <= j ? (i < home && home <= j) : (i < home || home <= j));
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        
+        private void grow() {
+            int[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = newValues(oldKeys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] >= 0) {
+                    int j = slot(oldKeys[i]);
+                    keys[j] = oldKeys[i];
+                    values[j] = oldValues[i];
+                }
+            }
+        }
     }
 }
 
@@ -302,7 +1942,9 @@ class StudentView {
             System.out.println("2. View All Students");
             System.out.println("3. Update Student");
             System.out.println("4. Delete Student");
-            System.out.println("5. Back to Main Menu");
+            System.out.println("5. Department Report");
+            System.out.println("6. Leaderboard");
+            System.out.println("7. Back to Main Menu");
             System.out.println("=".repeat(50));
             System.out.print("Choice: ");
             
@@ -314,7 +1956,9 @@ class StudentView {
                 case 2: controller.displayAllStudents(); break;
                 case 3: updateStudent(); break;
                 case 4: deleteStudent(); break;
-                case 5: return;
+                case 5: departmentReport(); break;
+                case 6: leaderboard(); break;
+                case 7: return;
                 default: System.out.println("Invalid choice!");
             }
         }
@@ -357,6 +2001,56 @@ class StudentView {
         }
     }
     
+    private void departmentReport() {
+        try {
+            Map<String, StudentAnalytics.DepartmentStats> stats = controller.analytics().departmentStats();
+            Map<String, List<StudentAnalytics.RankedStudent>> top = controller.analytics().topStudents(3);
+            
+            System.out.println("\n" + "=".repeat(90));
+            System.out.printf("%-20s %-7s %-8s %-8s %-8s %-8s %-8s %-8s%n",
+                "Department", "Count", "Avg", "Min", "Max", "P50", "P90", "P99");
+            System.out.println("=".repeat(90));
+            for (StudentAnalytics.DepartmentStats s : stats.values()) {
+                System.out.printf("%-20s %-7d %-8.2f %-8.2f %-8.2f %-8.2f %-8.2f %-8.2f%n",
+                    s.department, s.count, s.average, s.min, s.max,
+                    s.percentile(0), s.percentile(1), s.percentile(2));
+                for (StudentAnalytics.RankedStudent r : top.getOrDefault(s.department, new ArrayList<>())) {
+                    System.out.printf("    #%d %-25s %.2f%n", r.rank, r.name, r.marks);
+                }
+            }
+            System.out.println("=".repeat(90));
+        } catch (SQLException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+    
+    private void leaderboard() {
+        try {
+            StudentLeaderboard board = controller.leaderboard();
+            System.out.print("Department for top 10 (blank to look up one student): ");
+            String dept = sc.nextLine().trim();
+            if (dept.isEmpty()) {
+                System.out.print("Student ID: ");
+                int id = sc.nextInt();
+                int rank = board.rank(id);
+                if (rank == 0) System.out.println("✗ Student not found!");
+                else System.out.printf("Student %d: %.2f marks, rank %d in department%n", id, board.marksOf(id), rank);
+                return;
+            }
+            int[] top = board.top(dept, 10);
+            System.out.println("\n" + "=".repeat(40));
+            System.out.printf("%-6s %-12s %-10s%n", "Rank", "StudentID", "Marks");
+            System.out.println("=".repeat(40));
+            for (int id : top) {
+                System.out.printf("%-6d %-12d %-10.2f%n", board.rank(id), id, board.marksOf(id));
+            }
+            System.out.println("=".repeat(40));
+            System.out.println(board.size(dept) + " students in " + dept);
+        } catch (SQLException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+    
     private void deleteStudent() {
         System.out.print("Student ID to delete: ");
         int id = sc.nextInt();
@@ -373,12 +2067,352 @@ class StudentView {
     }
 }
 
+// ============================================================================
+// HEADLESS BATCH MODE
+// ============================================================================
+// Runs a script of Product and Student writes without the menus, e.g.
+//
+//   # op,fields...           (CSV quoting as in the product import)
+//   product.create,101,"Desk, oak",249.00,12
+//   product.update,101,Desk,229.00,12
+//   product.reserve,101,2
+//   student.add,1006,Fiona Gale,Civil,81.5
+//   commit
+//
+// Consecutive lines with the same op go to the server as one JDBC batch on a
+// single connection per database. Work is committed at the first batch
+// boundary after every commitEvery operations, on an explicit "commit" line
+// and at the end. inventory_db and school_db commit separately, so a script
+// that touches both is not atomic across them. Failed rows are replayed one
+// by one after rolling back to the batch's savepoint, so one bad row costs
+// only itself. The summary is a single JSON line on stdout; per-row errors
+// go to stderr.
+class BatchScriptRunner {
+    private static final String PRODUCT_DB_URL = "jdbc:mysql://localhost:3306/inventory_db";
+    private static final String STUDENT_DB_URL = "jdbc:mysql://localhost:3306/school_db";
+    private static final String DB_USER = "root";
+    private static final String DB_PASSWORD = "password";
+    private static final String URL_OPTIONS = "?useServerPrepStmts=true&rewriteBatchedStatements=true";
+    
+    // Field types per script column: i = int, s = text, d = decimal, f = double.
+    // params maps each SQL placeholder to the script column bound to it.
+    enum Op {
+        PRODUCT_CREATE("product.create", true, "isdi",
+            "INSERT INTO Product (ProductID, ProductName, Price, Quantity) VALUES (?, ?, ?, ?)", 0, 1, 2, 3),
+        PRODUCT_UPDATE("product.update", true, "isdi",
+            "UPDATE Product SET ProductName = ?, Price = ?, Quantity = ?, version = version + 1 WHERE ProductID = ?",
+            1, 2, 3, 0),
+        PRODUCT_DELETE("product.delete", true, "i", "DELETE FROM Product WHERE ProductID = ?", 0),
+        PRODUCT_RESERVE("product.reserve", true, "ii", PartB_ProductCRUD.RESERVE_SQL, 1, 0, 1),
+        PRODUCT_RELEASE("product.release", true, "ii", PartB_ProductCRUD.RELEASE_SQL, 1, 0),
+        STUDENT_ADD("student.add", false, "issf", "INSERT INTO Student VALUES (?, ?, ?, ?)", 0, 1, 2, 3),
+        STUDENT_UPDATE("student.update", false, "issf",
+            "UPDATE Student SET Name = ?, Department = ?, Marks = ? WHERE StudentID = ?", 1, 2, 3, 0),
+        STUDENT_DELETE("student.delete", false, "i", "DELETE FROM Student WHERE StudentID = ?", 0);
+        
+        final String label;
+        final boolean product;
+        final String types;
+        final String sql;
+        final int[] params;
+        
+        Op(String label, boolean product, String types, String sql, int... params) {
+            this.label = label;
+            this.product = product;
+            this.types = types;
+            this.sql = sql;
+            this.params = params;
+        }
+        
+        static Op of(String label) {
+            for (Op op : values()) {
+                if (op.label.equals(label)) return op;
+            }
+            return null;
+        }
+    }
+    
+    // Rows that changed nothing (unknown ID, not enough stock) count as noop
+    static class OpStats {
+        long count, ok, noop, failed, nanos, maxBatchNanos;
+    }
+    
+    private final int batchSize;
+    private final int commitEvery;
+    private final Map<Op, OpStats> stats = new EnumMap<>(Op.class);
+    private StatementCache products, students;
+    
+    private Op pendingOp;
+    private final List<Object[]> pending = new ArrayList<>();
+    private final List<Long> pendingLines = new ArrayList<>();
+    private long uncommitted, commits, invalid, rolledBack;
+    private String abortedBy;
+    
+    BatchScriptRunner(int batchSize, int commitEvery) {
+        if (batchSize < 1 || commitEvery < 1) {
+            throw new IllegalArgumentException("Batch size and commit interval must be positive");
+        }
+        this.batchSize = batchSize;
+        this.commitEvery = commitEvery;
+    }
+    
+    // Returns true when every line was applied and committed
+    boolean run(BufferedReader in) throws IOException {
+        long start = System.nanoTime();
+        try {
+            String line;
+            long lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+                if (trimmed.equals("commit")) {
+                    flush();
+                    commitAll();
+                    continue;
+                }
+                List<String> f = Csv.parseLine(trimmed);
+                Op op = Op.of(f.get(0).trim());
+                Object[] values;
+                try {
+                    if (op == null) throw new IllegalArgumentException("unknown op " + f.get(0).trim());
+                    values = parse(op, f);
+                } catch (IllegalArgumentException e) {
+                    invalid++;
+                    System.err.println("line " + lineNo + ": " + e.getMessage());
+                    continue;
+                }
+                if (op != pendingOp || pending.size() == batchSize) flush();
+                pendingOp = op;
+                pending.add(values);
+                pendingLines.add(lineNo);
+            }
+            flush();
+            commitAll();
+        } catch (SQLException e) {
+            abort(e);
+        } finally {
+            if (products != null) products.close();
+            if (students != null) students.close();
+        }
+        System.out.println(summary((System.nanoTime() - start) / 1e9));
+        
+        long failed = 0;
+        for (OpStats s : stats.values()) failed += s.failed;
+        return abortedBy == null && failed == 0 && invalid == 0;
+    }
+    
+    private static Object[] parse(Op op, List<String> f) {
+        if (f.size() != op.types.length() + 1) {
+            throw new IllegalArgumentException(op.label + " expects " + op.types.length()
+                + " fields, found " + (f.size() - 1));
+        }
+        Object[] values = new Object[op.types.length()];
+        for (int i = 0; i < values.length; i++) {
+            String v = f.get(i + 1).trim();
+            try {
+                switch (op.types.charAt(i)) {
+                    case 'i': values[i] = Integer.parseInt(v); break;
+                    case 'd': values[i] = new BigDecimal(v); break;
+                    case 'f': values[i] = Double.parseDouble(v); break;
+                    default:  values[i] = v;
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(op.label + ": bad number '" + v + "'");
+            }
+        }
+        if (op == Op.STUDENT_ADD || op == Op.STUDENT_UPDATE) {
+            Student s = new Student((Integer) values[0], (String) values[1], (String) values[2], (Double) values[3]);
+            if (!s.isValid()) throw new IllegalArgumentException(op.label + ": invalid student " + values[0]);
+        }
+        if ((op == Op.PRODUCT_RESERVE || op == Op.PRODUCT_RELEASE) && (Integer) values[1] <= 0) {
+            throw new IllegalArgumentException(op.label + ": quantity must be positive");
+        }
+        return values;
+    }
+    
+    private StatementCache statementsFor(Op op) throws SQLException {
+        if (op.product) {
+            if (products == null) products = open(PRODUCT_DB_URL);
+            return products;
+        }
+        if (students == null) students = open(STUDENT_DB_URL);
+        return students;
+    }
+    
+    private static StatementCache open(String url) throws SQLException {
+        return new StatementCache(() -> {
+            Connection conn = DriverManager.getConnection(url + URL_OPTIONS, DB_USER, DB_PASSWORD);
+            conn.setAutoCommit(false);
+            return conn;
+        });
+    }
+    
+    private void flush() throws SQLException {
+        if (pending.isEmpty()) return;
+        Op op = pendingOp;
+        OpStats s = stats.computeIfAbsent(op, k -> new OpStats());
+        StatementCache cache = statementsFor(op);
+        Connection conn = cache.connection();
+        PreparedStatement ps = cache.prepare(op.sql);
+        
+        long start = System.nanoTime();
+        Savepoint savepoint = conn.setSavepoint();
+        try {
+            for (Object[] values : pending) {
+                bind(ps, op, values);
+                ps.addBatch();
+            }
+            int[] counts = ps.executeBatch();
+            conn.releaseSavepoint(savepoint);
+            for (int count : counts) tally(s, count);
+        } catch (BatchUpdateException e) {
+            ps.clearBatch();
+            conn.rollback(savepoint);
+            for (int i = 0; i < pending.size(); i++) {
+                try {
+                    bind(ps, op, pending.get(i));
+                    tally(s, ps.executeUpdate());
+                } catch (SQLException rowError) {
+                    if (cache.discardIfBroken(rowError)) throw rowError;
+                    s.failed++;
+                    System.err.println("line " + pendingLines.get(i) + ": " + op.label + ": " + rowError.getMessage());
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        s.count += pending.size();
+        s.nanos += elapsed;
+        s.maxBatchNanos = Math.max(s.maxBatchNanos, elapsed);
+        
+        uncommitted += pending.size();
+        pending.clear();
+        pendingLines.clear();
+        if (uncommitted >= commitEvery) commitAll();
+    }
+    
+    private static void bind(PreparedStatement ps, Op op, Object[] values) throws SQLException {
+        for (int i = 0; i < op.params.length; i++) {
+            ps.setObject(i + 1, values[op.params[i]]);
+        }
+    }
+    
+    // SUCCESS_NO_INFO is what rewritten multi-row INSERTs report
+    private static void tally(OpStats s, int count) {
+        if (count > 0 || count == Statement.SUCCESS_NO_INFO) s.ok++;
+        else s.noop++;
+    }
+    
+    private void commitAll() throws SQLException {
+        if (uncommitted == 0) return;
+        if (products != null) products.commit();
+        if (students != null) students.commit();
+        uncommitted = 0;
+        commits++;
+    }
+    
+    // A lost connection or failed commit ends the run: everything since the
+    // last commit is rolled back rather than silently retried.
+    private void abort(SQLException e) {
+        abortedBy = e.getMessage();
+        rolledBack = uncommitted + pending.size();
+        System.err.println("Aborted: " + e.getMessage());
+        if (products != null) products.rollbackAfter(e);
+        if (students != null) students.rollbackAfter(e);
+    }
+    
+    private String summary(double seconds) {
+        long operations = 0, ok = 0, noop = 0, failed = 0;
+        StringBuilder byOp = new StringBuilder();
+        for (Map.Entry<Op, OpStats> e : stats.entrySet()) {
+            OpStats s = e.getValue();
+            operations += s.count;
+            ok += s.ok;
+            noop += s.noop;
+            failed += s.failed;
+            if (byOp.length() > 0) byOp.append(',');
+            byOp.append(String.format(
+                "{\"op\":\"%s\",\"count\":%d,\"ok\":%d,\"noop\":%d,\"failed\":%d,\"totalMs\":%.3f,\"avgUs\":%.1f,\"maxBatchMs\":%.3f}",
+                e.getKey().label, s.count, s.ok, s.noop, s.failed, s.nanos / 1e6,
+                s.count == 0 ? 0 : s.nanos / 1e3 / s.count, s.maxBatchNanos / 1e6));
+        }
+        return String.format(
+            "{\"status\":\"%s\",\"operations\":%d,\"ok\":%d,\"noop\":%d,\"failed\":%d,\"invalid\":%d,"
+            + "\"rolledBack\":%d,\"commits\":%d,\"batchSize\":%d,\"commitEvery\":%d,\"elapsedMs\":%.3f,"
+            + "\"opsPerSec\":%.1f%s,\"byOp\":[%s]}",
+            abortedBy == null ? "completed" : "aborted", operations, ok, noop, failed, invalid,
+            rolledBack, commits, batchSize, commitEvery, seconds * 1e3, operations / Math.max(seconds, 1e-9),
+            abortedBy == null ? "" : ",\"error\":\"" + jsonEscape(abortedBy) + "\"", byOp);
+    }
+    
+    private static String jsonEscape(String s) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.toString();
+    }
+}
+
 // ============================================================================
 // MAIN CLASS
 // ============================================================================
 public class JDBCCompleteApplication {
     
     public static void main(String[] args) {
+        // Non-interactive nightly dump:
+        //   java JDBCCompleteApplication dump-employees <chunks> <connections> [ordered|unordered] [file]
+        if (args.length >= 3 && args[0].equals("dump-employees")) {
+            PartA_EmployeeFetcher.executeParallel(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                args.length < 4 || !args[3].equals("unordered"), args.length >= 5 ? args[4] : null);
+            return;
+        }
+        //   java JDBCCompleteApplication load-students <file.csv> [batchSize]
+        if (args.length >= 2 && args[0].equals("load-students")) {
+            int batchSize = args.length >= 3 ? positiveInt(args[2]) : 500;
+            if (batchSize <= 0) {
+                System.err.println("Usage: java JDBCCompleteApplication load-students <file.csv> [batchSize]");
+                System.err.println("batchSize must be a whole number above 0, got: " + args[2]);
+                System.exit(1);
+            }
+            loadStudents(Paths.get(args[1]), batchSize);
+            return;
+        }
+        //   java JDBCCompleteApplication batch <script|-> [batchSize] [commitEvery]
+        if (args.length >= 2 && args[0].equals("batch")) {
+            int batchSize = args.length >= 3 ? positiveInt(args[2]) : 500;
+            int commitEvery = args.length >= 4 ? positiveInt(args[3]) : 1000;
+            if (batchSize <= 0 || commitEvery <= 0) {
+                System.err.println("Usage: java JDBCCompleteApplication batch <script|-> [batchSize] [commitEvery]");
+                System.err.println("batchSize and commitEvery must be whole numbers above 0, got: "
+                    + String.join(" ", Arrays.copyOfRange(args, 2, args.length)));
+                System.exit(1);
+            }
+            BatchScriptRunner runner = new BatchScriptRunner(batchSize, commitEvery);
+            boolean clean;
+            try (BufferedReader in = args[1].equals("-")
+                    ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                    : Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+                clean = runner.run(in);
+            } catch (IOException e) {
+                System.err.println("Error: " + e.getMessage());
+                clean = false;
+            }
+            if (!clean) System.exit(1);
+            return;
+        }
+        //   java JDBCCompleteApplication migrate-inventory
+        if (args.length >= 1 && args[0].equals("migrate-inventory")) {
+            try {
+                PartB_ProductCRUD.migrate();
+            } catch (SQLException e) {
+                System.err.println("Migration failed: " + e.getMessage());
+            }
+            return;
+        }
+        
         Scanner sc = new Scanner(System.in);
         
         while (true) {
@@ -386,11 +2420,12 @@ public class JDBCCompleteApplication {
             System.out.println("       JDBC COMPLETE APPLICATION - ALL PARTS");
             System.out.println("=".repeat(60));
             System.out.println("Part A: Fetch Employee Data");
+            System.out.println("Part P: Parallel Employee Dump");
             System.out.println("Part B: Product CRUD with Transactions");
             System.out.println("Part C: Student Management with MVC");
             System.out.println("Exit: Quit Application");
             System.out.println("=".repeat(60));
-            System.out.print("Enter Part (A/B/C) or Exit: ");
+            System.out.print("Enter Part (A/P/B/C) or Exit: ");
             
             String choice = sc.nextLine().trim().toUpperCase();
             
@@ -400,6 +2435,19 @@ public class JDBCCompleteApplication {
                         PartA_EmployeeFetcher.execute();
                         break;
                         
+                    case "P":
+                        System.out.print("Chunks: ");
+                        int chunks = Integer.parseInt(sc.nextLine().trim());
+                        System.out.print("Connections: ");
+                        int threads = Integer.parseInt(sc.nextLine().trim());
+                        System.out.print("Keep EmpID order? (Y/N): ");
+                        boolean ordered = sc.nextLine().trim().equalsIgnoreCase("Y");
+                        System.out.print("Output file (blank for console): ");
+                        String file = sc.nextLine().trim();
+                        PartA_EmployeeFetcher.executeParallel(chunks, threads, ordered,
+                            file.isEmpty() ? null : file);
+                        break;
+                        
                     case "B":
                         PartB_ProductCRUD partB = new PartB_ProductCRUD();
                         partB.showMenu();
@@ -418,7 +2466,7 @@ public class JDBCCompleteApplication {
                         return;
                         
                     default:
-                        System.out.println("Invalid choice! Enter A, B, C, or Exit");
+                        System.out.println("Invalid choice! Enter A, P, B, C, or Exit");
                 }
             } catch (SQLException e) {
                 System.err.println("\nDatabase Error: " + e.getMessage());
@@ -431,6 +2479,108 @@ public class JDBCCompleteApplication {
             }
         }
     }
+    
+    // -1 when the argument is not a whole number above 0
+    static int positiveInt(String value) {
+        try {
+            return Math.max(-1, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    // Term registration: CSV of StudentID,Name,Department,Marks with an
+    // optional header, loaded through StudentController.addStudents
+    static void loadStudents(Path file, int batchSize) {
+        long start = System.nanoTime();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             StudentController controller = new StudentController()) {
+            StudentCsvSource students = new StudentCsvSource(in);
+            List<StudentController.AddResult> results = controller.addStudents(students, batchSize);
+            int unreadable = students.unreadable;
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Map<StudentController.AddStatus, Integer> counts = new EnumMap<>(StudentController.AddStatus.class);
+            int shown = 0;
+            for (StudentController.AddResult r : results) {
+                counts.merge(r.status, 1, Integer::sum);
+                if (r.status != StudentController.AddStatus.ADDED && shown++ < 20) {
+                    System.out.println("✗ Student " + r.student.getStudentId() + ": " + r.status + " - " + r.message);
+                }
+            }
+            System.out.println("=".repeat(60));
+            System.out.printf("Added: %d, duplicate: %d, invalid: %d, errors: %d, unreadable lines: %d%n",
+                counts.getOrDefault(StudentController.AddStatus.ADDED, 0),
+                counts.getOrDefault(StudentController.AddStatus.DUPLICATE_KEY, 0),
+                counts.getOrDefault(StudentController.AddStatus.INVALID, 0),
+                counts.getOrDefault(StudentController.AddStatus.ERROR, 0), unreadable);
+            System.out.printf("Time: %.2f s (%.0f rows/s)%n", seconds, results.size() / Math.max(seconds, 1e-9));
+            System.out.println("=".repeat(60));
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        } catch (UncheckedIOException e) {
+            System.err.println("Error: " + e.getCause().getMessage());
+        } catch (SQLException e) {
+            System.err.println("Database Error: " + e.getMessage());
+        }
+    }
+    
+    // Parses students off the reader as addStudents asks for them, so the
+    // file is never held in memory as a whole. Unreadable lines are reported
+    // and skipped; a first line that does not parse is taken as the header.
+    // Single use: the reader is consumed by the first iteration.
+    static class StudentCsvSource implements Iterable<Student> {
+        private final BufferedReader in;
+        private long lineNo;
+        int unreadable;
+        
+        StudentCsvSource(BufferedReader in) {
+            this.in = in;
+        }
+        
+        @Override
+        public Iterator<Student> iterator() {
+            return new Iterator<Student>() {
+                private Student next;
+                
+                @Override
+                public boolean hasNext() {
+                    if (next == null) next = readNext();
+                    return next != null;
+                }
+                
+                @Override
+                public Student next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    Student s = next;
+                    next = null;
+                    return s;
+                }
+            };
+        }
+        
+        private Student readNext() {
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lineNo++;
+                    if (line.trim().isEmpty()) continue;
+                    List<String> f = Csv.parseLine(line);
+                    try {
+                        if (f.size() != 4) throw new NumberFormatException("expected 4 fields, found " + f.size());
+                        return new Student(Integer.parseInt(f.get(0).trim()), f.get(1).trim(),
+                            f.get(2).trim(), Double.parseDouble(f.get(3).trim()));
+                    } catch (NumberFormatException e) {
+                        if (lineNo == 1) continue;   // header
+                        unreadable++;
+                        System.out.println("✗ Line " + lineNo + ": " + e.getMessage());
+                    }
+                }
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
 }
 
 /*
@@ -473,6 +2623,14 @@ INSERT INTO Product VALUES
 (104, 'Monitor', 299.99, 20),
 (105, 'USB Cable', 10.99, 100);
 
+-- Part B migrations (also applied and recorded by `migrate-inventory`)
+-- 001_product_query_indexes: search filters and sort orders in read()
+CREATE INDEX idx_product_name ON Product (ProductName);
+CREATE INDEX idx_product_price ON Product (Price);
+CREATE INDEX idx_product_quantity ON Product (Quantity);
+-- 002_product_version: optimistic concurrency for update/delete
+ALTER TABLE Product ADD COLUMN version INT NOT NULL DEFAULT 0;
+
 -- PART C: Student Table
 CREATE DATABASE IF NOT EXISTS school_db;
 USE school_db;
@@ -508,5 +2666,19 @@ IMPORTANT NOTES:
 5. To run locally:
    javac JDBCCompleteApplication.java
    java -cp .:mysql-connector-java-8.0.33.jar JDBCCompleteApplication
+
+6. Parallel employee dump (rows/s is reported on stderr):
+   java -cp .:mysql-connector-java-8.0.33.jar JDBCCompleteApplication dump-employees 8 4 ordered employees.txt
+
+7. Product CSV import (Part B, option 5) expects ProductID,ProductName,Price,Quantity
+   with an optional header line; quote names that contain commas.
+
+8. Bulk student registration from CSV (StudentID,Name,Department,Marks):
+   java -cp .:mysql-connector-java-8.0.33.jar JDBCCompleteApplication load-students students.csv 500
+
+9. Scripted Product/Student writes without the menus (see BatchScriptRunner for
+   the line format); pass - to read the script from stdin. Prints a JSON summary
+   and exits with status 1 if any line failed:
+   java -cp .:mysql-connector-java-8.0.33.jar JDBCCompleteApplication batch ops.txt 500 1000
 =============================================================================
 */
\ No newline at end of file
@@ -1,50 +1,654 @@
 import java.io.*;
+import java.lang.reflect.*;
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
 import javax.servlet.*;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.*;
 
-@WebServlet(urlPatterns = {"/login", "/employee", "/attendance"})
+@WebServlet(urlPatterns = {"/login", "/employee", "/employee/export", "/attendance", "/attendance/bulk",
+        "/metrics"},
+        asyncSupported = true)
 public class CombinedServlet extends HttpServlet {
 
     // Database details
     String EMP_DB_URL = "jdbc:mysql://localhost:3306/company";
-    String ATT_DB_URL = "jdbc:mysql://localhost:3306/school";
+    // rewriteBatchedStatements lets the driver send a JDBC batch as multi-row INSERTs
+    String ATT_DB_URL = "jdbc:mysql://localhost:3306/school?rewriteBatchedStatements=true";
     String DB_USER = "root";
     String DB_PASS = "password";
 
+    // Connection pools, one per database, created in init()
+    ConnectionPool empPool;
+    ConnectionPool attPool;
+
+    // Employee listing page sizes, overridable through init params
+    int pageSize;
+    int maxPageSize;
+
+    // Rows written between explicit flushes of the employee listing
+    static final int FLUSH_EVERY_ROWS = 256;
+
+    // Bulk attendance limits, overridable through init params
+    int bulkMaxRows;
+    int bulkBatchSize;
+
+    // Read-through cache for /employee?empId=..., only created when employee.cache.enabled=true
+    EmployeeCache employeeCache;
+
+    // Write-behind queue for /attendance, only created when attendance.writeBehind=true
+    AttendanceWriteBehind attendanceWriter;
+
+    // Per-route request counters and latency histograms, exposed on /metrics
+    final ServletMetrics metrics = new ServletMetrics();
+
+    // Last known Employee table version, refreshed at most every versionCheckMs
+    final AtomicReference<TableVersion> employeeVersion = new AtomicReference<>();
+    volatile boolean versionTableMissing;
+    long versionCheckMs;
+
+    // One bulkhead per database: its own concurrency limit, executor and
+    // timeout, so a slow school database cannot starve company lookups
+    final DataSourceRegistry dataSources = new DataSourceRegistry();
+    boolean asyncEnabled;
+    long exportTimeoutMs;
+
+    @Override
+    public void init() throws ServletException {
+        // Connection details can be overridden with init params, e.g. to point
+        // the servlet at an embedded database for load testing
+        EMP_DB_URL = stringParam("emp.url", EMP_DB_URL);
+        ATT_DB_URL = stringParam("att.url", ATT_DB_URL);
+        DB_USER = stringParam("db.user", DB_USER);
+        DB_PASS = stringParam("db.password", DB_PASS);
+        String driver = stringParam("db.driver", "com.mysql.cj.jdbc.Driver");
+        try {
+            Class.forName(driver);
+        } catch (ClassNotFoundException e) {
+            throw new ServletException("JDBC driver not found: " + driver, e);
+        }
+        empPool = createPool("emp", EMP_DB_URL);
+        attPool = createPool("att", ATT_DB_URL);
+        empPool.setListener(metrics);
+        attPool.setListener(metrics);
+        pageSize = intParam("employee.pageSize", 100);
+        maxPageSize = intParam("employee.maxPageSize", 1000);
+        if ("true".equalsIgnoreCase(getInitParameter("employee.cache.enabled"))) {
+            employeeCache = new EmployeeCache(
+                    intParam("employee.cache.maxSize", 10000),
+                    intParam("employee.cache.ttlMs", 60000),
+                    intParam("employee.cache.negativeTtlMs", 5000));
+        }
+        versionCheckMs = intParam("employee.versionCheckMs", 1000);
+        bulkMaxRows = intParam("attendance.bulk.maxRows", 2000);
+        bulkBatchSize = intParam("attendance.bulk.batchSize", 500);
+        if ("true".equalsIgnoreCase(getInitParameter("attendance.writeBehind"))) {
+            attendanceWriter = new AttendanceWriteBehind(attPool, this::log,
+                    intParam("attendance.writeBehind.capacity", 10000),
+                    intParam("attendance.writeBehind.batchSize", 500),
+                    intParam("attendance.writeBehind.flushMs", 50),
+                    intParam("attendance.writeBehind.offerTimeoutMs", 100));
+        }
+        asyncEnabled = !"false".equalsIgnoreCase(getInitParameter("async.enabled"));
+        // Exports can legitimately run for minutes; 0 means no timeout
+        exportTimeoutMs = intParam("async.exportTimeoutMs", 0);
+        dataSources.register(createBulkhead("emp", empPool), "/employee");
+        dataSources.register(createBulkhead("att", attPool), "/attendance");
+    }
+
+    // Bulkhead settings use the pool name as prefix, e.g. att.bulkhead.maxConcurrent=20.
+    // maxConcurrent is the ceiling; the adaptive limit moves between
+    // <name>.limiter.min and that ceiling as database latency changes.
+    Bulkhead createBulkhead(String name, ConnectionPool pool) {
+        String prefix = name + ".bulkhead.";
+        String limiterPrefix = name + ".limiter.";
+        int maxConcurrent = intParam(prefix + "maxConcurrent", pool.getMaxSize() * 2);
+        AdaptiveLimiter limiter = new AdaptiveLimiter(
+                !"false".equalsIgnoreCase(getInitParameter(limiterPrefix + "adaptive")),
+                intParam(limiterPrefix + "initial", maxConcurrent),
+                intParam(limiterPrefix + "min", 2),
+                maxConcurrent,
+                intParam(limiterPrefix + "normalPercent", 80),
+                intParam(limiterPrefix + "lowPercent", 50));
+        return new Bulkhead(name, pool, limiter,
+                asyncEnabled ? createDbExecutor(name, maxConcurrent) : null,
+                intParam(prefix + "timeoutMs", intParam("async.timeoutMs", 30000)),
+                intParam(prefix + "maxWaitMs", 100),
+                intParam(prefix + "retryAfterSec", 1));
+    }
+
+    // Virtual threads when the JVM has them (Java 21+), otherwise a pool with
+    // one thread per bulkhead permit. Either way the bulkhead caps how many
+    // requests reach the executor at once.
+    ExecutorService createDbExecutor(String name, int threads) {
+        if (!"false".equalsIgnoreCase(getInitParameter("async.virtualThreads"))) {
+            try {
+                return (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log("Virtual threads not available, using a bounded executor for " + name);
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, name + "-worker-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Override
+    public void destroy() {
+        dataSources.close();
+        if (employeeCache != null) {
+            log(employeeCache.stats());
+        }
+        // Drain queued attendance before the pool it writes through goes away
+        if (attendanceWriter != null) {
+            attendanceWriter.close();
+            log(attendanceWriter.stats());
+        }
+        if (empPool != null) {
+            log(empPool.stats());
+            empPool.close();
+        }
+        if (attPool != null) {
+            log(attPool.stats());
+            attPool.close();
+        }
+    }
+
+    // Pool settings come from init params prefixed with the pool name,
+    // e.g. emp.pool.maxSize=20 or att.pool.acquireTimeoutMs=2000
+    ConnectionPool createPool(String name, String url) {
+        String prefix = name + ".pool.";
+        return new ConnectionPool(name, url, DB_USER, DB_PASS,
+                intParam(prefix + "minSize", 2),
+                intParam(prefix + "maxSize", 10),
+                intParam(prefix + "acquireTimeoutMs", 5000),
+                intParam(prefix + "validationTimeoutSec", 2),
+                intParam(prefix + "validateAfterIdleMs", 1000),
+                intParam(prefix + "leakThresholdMs", 30000),
+                "true".equalsIgnoreCase(getInitParameter(prefix + "leakStackTraces")));
+    }
+
+    String stringParam(String name, String defaultValue) {
+        String value = getInitParameter(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    int intParam(String name, int defaultValue) {
+        String value = getInitParameter(name);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log("Invalid value for init param " + name + ": " + value);
+            return defaultValue;
+        }
+    }
+
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
+        request.setAttribute(ServletMetrics.START_ATTRIBUTE, System.nanoTime());
+        if (isDatabaseRoute(request.getServletPath())) {
+            dispatch(request, response, this::serveGet);
+        } else {
+            serveGet(request, response);
+        }
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        request.setAttribute(ServletMetrics.START_ATTRIBUTE, System.nanoTime());
+        if (isDatabaseRoute(request.getServletPath())) {
+            dispatch(request, response, this::servePost);
+        } else {
+            servePost(request, response);
+        }
+    }
+
+    void serveGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        metrics.begin(request);
+        try {
+            routeGet(request, response);
+        } catch (ServletException | IOException | RuntimeException e) {
+            markFailed(response);
+            throw e;
+        } finally {
+            metrics.end(response);
+        }
+    }
+
+    void servePost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        metrics.begin(request);
+        try {
+            routePost(request, response);
+        } catch (ServletException | IOException | RuntimeException e) {
+            markFailed(response);
+            throw e;
+        } finally {
+            metrics.end(response);
+        }
+    }
+
+    // A handler that throws is counted while its metrics sample is still
+    // open; whoever catches the exception renders the error page
+    void markFailed(HttpServletResponse response) {
+        metrics.markError();
+        if (!response.isCommitted()) {
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    void routeGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        if (request.getServletPath().equals("/metrics")) {
+            handleMetrics(response);
+            return;
+        }
+        if (request.getServletPath().equals("/employee/export")) {
+            handleEmployeeExport(request, response);
+            return;
+        }
+        if (request.getServletPath().equals("/employee") && employeeNotModified(request, response)) {
+            return;
+        }
 
         response.setContentType("text/html");
+        response.setBufferSize(8192);
         PrintWriter out = response.getWriter();
         String path = request.getServletPath();
 
         if (path.equals("/employee")) {
-            handleEmployee(out, request);
+            handleEmployee(out, request, response);
         } else {
             out.println("<html><body><h2>Invalid GET request!</h2></body></html>");
         }
     }
 
-    @Override
-    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+    void routePost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
 
+        String path = request.getServletPath();
+        if (path.equals("/attendance/bulk")) {
+            handleBulkAttendance(request, response);
+            return;
+        }
+
         response.setContentType("text/html");
         PrintWriter out = response.getWriter();
-        String path = request.getServletPath();
 
         if (path.equals("/login")) {
             handleLogin(out, request);
         } else if (path.equals("/attendance")) {
-            handleAttendance(out, request);
+            if (attendanceWriter != null) {
+                queueAttendance(out, request, response);
+            } else {
+                handleAttendance(out, request, response);
+            }
         } else {
             out.println("<html><body><h2>Invalid POST request!</h2></body></html>");
         }
     }
 
+    // ========== METRICS SECTION ==========
+    // Prometheus text exposition of request metrics plus pool, cache and
+    // write-behind statistics
+    void handleMetrics(HttpServletResponse response) throws IOException {
+        response.setContentType("text/plain; version=0.0.4");
+        response.setCharacterEncoding("UTF-8");
+        StringBuilder sb = new StringBuilder(16 * 1024);
+        metrics.writePrometheus(sb);
+
+        // Every family is written contiguously under its own HELP and TYPE lines
+        List<ConnectionPool> pools = List.of(empPool, attPool);
+        ServletMetrics.writeHeader(sb, "combined_pool_connections", "gauge",
+                "Connections per pool by state");
+        for (ConnectionPool pool : pools) {
+            String label = "{pool=\"" + pool.getName() + "\"";
+            sb.append("combined_pool_connections").append(label).append(",state=\"active\"} ").append(pool.getActive()).append('\n');
+            sb.append("combined_pool_connections").append(label).append(",state=\"idle\"} ").append(pool.getIdle()).append('\n');
+            sb.append("combined_pool_connections").append(label).append(",state=\"max\"} ").append(pool.getMaxSize()).append('\n');
+        }
+        writeFamily(sb, "combined_pool_waiting", "gauge", "Threads waiting for a connection",
+                pools, pool -> "pool=\"" + pool.getName() + "\"", ConnectionPool::getWaiting);
+        writeFamily(sb, "combined_pool_borrows_total", "counter", "Connections handed out",
+                pools, pool -> "pool=\"" + pool.getName() + "\"", ConnectionPool::getBorrowCount);
+        writeFamily(sb, "combined_pool_timeouts_total", "counter", "Borrows that timed out",
+                pools, pool -> "pool=\"" + pool.getName() + "\"", ConnectionPool::getTimeoutCount);
+        writeFamily(sb, "combined_pool_leaks_total", "counter", "Connections held past the leak threshold",
+                pools, pool -> "pool=\"" + pool.getName() + "\"", ConnectionPool::getLeakCount);
+
+        List<Bulkhead> bulkheads = dataSources.all();
+        writeFamily(sb, "combined_bulkhead_in_flight", "gauge", "Requests admitted and not yet finished",
+                bulkheads, bulkhead -> "db=\"" + bulkhead.getName() + "\"", Bulkhead::getInFlight);
+        writeFamily(sb, "combined_bulkhead_limit", "gauge", "Current adaptive concurrency limit",
+                bulkheads, bulkhead -> "db=\"" + bulkhead.getName() + "\"",
+                bulkhead -> bulkhead.getLimiter().getLimit());
+        writeFamily(sb, "combined_bulkhead_max_limit", "gauge", "Upper bound of the concurrency limit",
+                bulkheads, bulkhead -> "db=\"" + bulkhead.getName() + "\"", Bulkhead::getMaxConcurrent);
+        writeFamily(sb, "combined_bulkhead_congested", "gauge",
+                "1 while lower priorities are held to their share of the limit",
+                bulkheads, bulkhead -> "db=\"" + bulkhead.getName() + "\"",
+                bulkhead -> bulkhead.getLimiter().isCongested() ? 1 : 0);
+        writeFamily(sb, "combined_bulkhead_admitted_total", "counter", "Requests admitted by the bulkhead",
+                bulkheads, bulkhead -> "db=\"" + bulkhead.getName() + "\"", Bulkhead::getAdmitted);
+        ServletMetrics.writeHeader(sb, "combined_bulkhead_rejected_total", "counter",
+                "Requests shed by the bulkhead, by priority");
+        for (Bulkhead bulkhead : bulkheads) {
+            for (AdaptiveLimiter.Priority priority : AdaptiveLimiter.Priority.values()) {
+                sb.append("combined_bulkhead_rejected_total{db=\"").append(bulkhead.getName())
+                        .append("\",priority=\"").append(priority.name().toLowerCase()).append("\"} ")
+                        .append(bulkhead.getLimiter().getRejected(priority)).append('\n');
+            }
+        }
+        ServletMetrics.writeHeader(sb, "combined_bulkhead_latency_seconds", "gauge",
+                "Smoothed latency seen by the limiter, by window");
+        for (Bulkhead bulkhead : bulkheads) {
+            AdaptiveLimiter limiter = bulkhead.getLimiter();
+            sb.append("combined_bulkhead_latency_seconds{db=\"").append(bulkhead.getName()).append("\",window=\"long\"} ")
+                    .append(limiter.getLongRttNanos() / 1e9).append('\n');
+            sb.append("combined_bulkhead_latency_seconds{db=\"").append(bulkhead.getName()).append("\",window=\"short\"} ")
+                    .append(limiter.getShortRttNanos() / 1e9).append('\n');
+        }
+
+        if (employeeCache != null) {
+            writeSingle(sb, "combined_employee_cache_size", "gauge", "Entries in the employee cache",
+                    employeeCache.size());
+            writeSingle(sb, "combined_employee_cache_hits_total", "counter", "Employee cache hits",
+                    employeeCache.getHits());
+            writeSingle(sb, "combined_employee_cache_negative_hits_total", "counter",
+                    "Employee cache hits on missing IDs", employeeCache.getNegativeHits());
+            writeSingle(sb, "combined_employee_cache_misses_total", "counter", "Employee cache misses",
+                    employeeCache.getMisses());
+            writeSingle(sb, "combined_employee_cache_coalesced_total", "counter",
+                    "Misses that joined a load already in progress", employeeCache.getCoalesced());
+            writeSingle(sb, "combined_employee_cache_evictions_total", "counter", "Employee cache evictions",
+                    employeeCache.getEvictions());
+        }
+        if (attendanceWriter != null) {
+            writeSingle(sb, "combined_attendance_queue_depth", "gauge", "Attendance rows waiting to be written",
+                    attendanceWriter.getDepth());
+            writeSingle(sb, "combined_attendance_rejected_total", "counter",
+                    "Attendance rows rejected because the queue was full", attendanceWriter.getRejected());
+            writeSingle(sb, "combined_attendance_written_total", "counter", "Attendance rows written",
+                    attendanceWriter.getWritten());
+            writeSingle(sb, "combined_attendance_failed_total", "counter", "Attendance rows that failed to write",
+                    attendanceWriter.getFailed());
+            writeSingle(sb, "combined_attendance_flushes_total", "counter", "Attendance batch flushes",
+                    attendanceWriter.getFlushes());
+            writeSingle(sb, "combined_attendance_flush_seconds_sum", "counter", "Time spent flushing batches",
+                    attendanceWriter.getFlushNanosTotal() / 1e9);
+            writeSingle(sb, "combined_attendance_flush_seconds_max", "gauge", "Slowest batch flush",
+                    attendanceWriter.getFlushNanosMax() / 1e9);
+        }
+        response.getWriter().print(sb);
+    }
+
+    static <T> void writeFamily(StringBuilder sb, String name, String type, String help, List<T> sources,
+                                Function<T, String> labels, Function<T, Number> value) {
+        ServletMetrics.writeHeader(sb, name, type, help);
+        for (T source : sources) {
+            sb.append(name).append('{').append(labels.apply(source)).append("} ")
+                    .append(value.apply(source)).append('\n');
+        }
+    }
+
+    static void writeSingle(StringBuilder sb, String name, String type, String help, Number value) {
+        ServletMetrics.writeHeader(sb, name, type, help);
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    // ========== ASYNC SECTION ==========
+    interface Handler {
+        void handle(HttpServletRequest request, HttpServletResponse response)
+                throws ServletException, IOException;
+    }
+
+    static boolean isDatabaseRoute(String path) {
+        return path.startsWith("/employee") || path.startsWith("/attendance");
+    }
+
+    // Single-row lookups and writes are cheap and user-facing; listings,
+    // exports and bulk loads are shed first. /login never touches a database
+    // and is not limited at all.
+    static AdaptiveLimiter.Priority priorityOf(HttpServletRequest request) {
+        String path = request.getServletPath();
+        if (path.equals("/employee")) {
+            String empId = request.getParameter("empId");
+            return empId != null && !empId.isEmpty()
+                    ? AdaptiveLimiter.Priority.HIGH : AdaptiveLimiter.Priority.LOW;
+        }
+        if (path.equals("/attendance")) {
+            return AdaptiveLimiter.Priority.NORMAL;
+        }
+        return AdaptiveLimiter.Priority.LOW;
+    }
+
+    // Admits the request through its database's bulkhead, then runs the handler
+    // on that bulkhead's executor so the container thread is released while
+    // the request waits on MySQL. When the adaptive limit for the request's
+    // priority is reached it answers 503 at once instead of queueing.
+    // Runs inline when async is disabled or not supported by the filter chain.
+    void dispatch(HttpServletRequest request, HttpServletResponse response, Handler handler)
+            throws ServletException, IOException {
+        Bulkhead bulkhead = dataSources.forRoute(request.getServletPath());
+        if (bulkhead == null) {
+            handler.handle(request, response);
+            return;
+        }
+        if (!bulkhead.tryEnter(priorityOf(request))) {
+            metrics.rejected(request, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", String.valueOf(bulkhead.getRetryAfterSec()));
+            writeErrorPage(response, "Server Busy",
+                    "The " + bulkhead.getName() + " database is at capacity, please retry.");
+            return;
+        }
+        if (bulkhead.getExecutor() == null || !request.isAsyncSupported()) {
+            long start = System.nanoTime();
+            try {
+                handler.handle(request, response);
+            } finally {
+                bulkhead.exit(System.nanoTime() - start, AdaptiveLimiter.Outcome.SUCCESS);
+            }
+            return;
+        }
+        // Some containers reset the servlet path once service() returns, so pin
+        // it for the worker thread
+        String servletPath = request.getServletPath();
+        String pathInfo = request.getPathInfo();
+        HttpServletRequest pinned = new HttpServletRequestWrapper(request) {
+            @Override
+            public String getServletPath() {
+                return servletPath;
+            }
+
+            @Override
+            public String getPathInfo() {
+                return pathInfo;
+            }
+        };
+        AsyncContext context = request.startAsync(pinned, response);
+        context.setTimeout(servletPath.equals("/employee/export") ? exportTimeoutMs : bulkhead.getTimeoutMs());
+        AsyncDbRequest task = new AsyncDbRequest(context, pinned, response, handler, bulkhead);
+        context.addListener(task);
+        try {
+            task.future = bulkhead.getExecutor().submit(task);
+        } catch (RejectedExecutionException e) {
+            task.reject();
+        }
+    }
+
+    class AsyncDbRequest implements Runnable, AsyncListener {
+        static final int QUEUED = 0;
+        static final int RUNNING = 1;
+        static final int DONE = 2;
+
+        final AtomicInteger state = new AtomicInteger(QUEUED);
+        final AsyncContext context;
+        final HttpServletRequest request;
+        final HttpServletResponse rawResponse;
+        final GuardedResponse response;
+        final Handler handler;
+        final Bulkhead bulkhead;
+        final long admittedAt = System.nanoTime();
+        final AtomicBoolean released = new AtomicBoolean();
+        volatile Future<?> future;
+
+        AsyncDbRequest(AsyncContext context, HttpServletRequest request,
+                       HttpServletResponse response, Handler handler, Bulkhead bulkhead) {
+            this.context = context;
+            this.request = request;
+            this.rawResponse = response;
+            this.response = new GuardedResponse(response);
+            this.handler = handler;
+            this.bulkhead = bulkhead;
+        }
+
+        // The permit is held until the database work really stops, so a timed
+        // out request that is still running keeps counting against the limit.
+        // Its latency, queue wait included, feeds the adaptive limit.
+        void release(AdaptiveLimiter.Outcome outcome) {
+            if (released.compareAndSet(false, true)) {
+                bulkhead.exit(System.nanoTime() - admittedAt, outcome);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                return;
+            }
+            try {
+                handler.handle(request, response);
+            } catch (Exception e) {
+                // serveGet/servePost have already counted the error and set the 500
+                log("Error handling " + request.getServletPath(), e);
+                if (!response.isCommitted()) {
+                    response.resetBuffer();
+                    writeErrorPage(response, "Error", e.getMessage());
+                }
+            } finally {
+                // Losing the race to onTimeout/onError means the client gave up
+                boolean finished = state.compareAndSet(RUNNING, DONE);
+                release(finished ? AdaptiveLimiter.Outcome.SUCCESS : AdaptiveLimiter.Outcome.DROPPED);
+                if (finished) {
+                    response.detach(context::complete);
+                }
+            }
+        }
+
+        // Executor queue is full: fail fast instead of tying up the container
+        void reject() {
+            if (state.compareAndSet(QUEUED, DONE)) {
+                release(AdaptiveLimiter.Outcome.IGNORED);
+                metrics.rejected(request, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                rawResponse.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                rawResponse.setHeader("Retry-After", String.valueOf(bulkhead.getRetryAfterSec()));
+                writeErrorPage(rawResponse, "Server Busy", "Too many requests in progress, please retry.");
+                context.complete();
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            int previous = state.getAndSet(DONE);
+            if (previous == DONE) {
+                return;
+            }
+            if (previous == QUEUED) {
+                release(AdaptiveLimiter.Outcome.DROPPED);
+                metrics.rejected(request, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            }
+            response.detach(() -> {
+                if (!rawResponse.isCommitted()) {
+                    rawResponse.resetBuffer();
+                    rawResponse.setStatus(previous == QUEUED
+                            ? HttpServletResponse.SC_SERVICE_UNAVAILABLE
+                            : HttpServletResponse.SC_GATEWAY_TIMEOUT);
+                    writeErrorPage(rawResponse, "Timeout",
+                            "Request did not complete within " + context.getTimeout() + " ms.");
+                }
+                context.complete();
+            });
+            cancel();
+        }
+
+        // Interrupts the worker (e.g. while it waits for a pooled connection)
+        void cancel() {
+            Future<?> f = future;
+            if (f != null) {
+                f.cancel(true);
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            int previous = state.getAndSet(DONE);
+            if (previous != DONE) {
+                if (previous == QUEUED) {
+                    release(AdaptiveLimiter.Outcome.IGNORED);
+                }
+                response.detach(context::complete);
+                cancel();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    // Handlers render errors into the page themselves; this makes them visible
+    // in the log and in the route's error counter as well
+    void recordError(String route, Exception e) {
+        metrics.markError();
+        log("Error handling " + route, e);
+    }
+
+    void writeErrorPage(HttpServletResponse response, String title, String message) {
+        try {
+            response.setContentType("text/html");
+            PrintWriter out = response.getWriter();
+            out.println("<html><body>");
+            out.println("<h2>" + title + "</h2>");
+            out.println("<p>" + message + "</p>");
+            out.println("</body></html>");
+        } catch (IOException | IllegalStateException e) {
+            log("Could not write error page: " + e.getMessage());
+        }
+    }
+
     // ========== LOGIN SECTION ==========
     void handleLogin(PrintWriter out, HttpServletRequest request) {
         String username = request.getParameter("username");
@@ -63,66 +667,385 @@ public class CombinedServlet extends HttpServlet {
     }
 
     // ========== EMPLOYEE SECTION ==========
-    void handleEmployee(PrintWriter out, HttpServletRequest request) {
+    void handleEmployee(PrintWriter out, HttpServletRequest request, HttpServletResponse response) {
         String empId = request.getParameter("empId");
 
         try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            Connection conn = DriverManager.getConnection(EMP_DB_URL, DB_USER, DB_PASS);
-
             out.println("<html><body>");
             out.println("<h2>Employee Records</h2>");
             out.println("<form method='get'>");
             out.println("Search by ID: <input type='text' name='empId'>");
             out.println("<input type='submit' value='Search'></form><hr>");
 
-            String query;
             if (empId != null && !empId.isEmpty()) {
-                query = "SELECT * FROM Employee WHERE EmpID = ?";
-                PreparedStatement ps = conn.prepareStatement(query);
-                ps.setInt(1, Integer.parseInt(empId));
-                ResultSet rs = ps.executeQuery();
-                displayTable(out, rs);
+                int id = Integer.parseInt(empId);
+                EmployeeRow row = employeeCache != null
+                        ? employeeCache.get(id, this::loadEmployee)
+                        : loadEmployee(id);
+                displayEmployee(out, row);
             } else {
-                query = "SELECT * FROM Employee";
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery(query);
-                displayTable(out, rs);
+                try (Connection conn = empPool.getConnection()) {
+                    listEmployees(out, conn, request);
+                }
             }
 
-            conn.close();
             out.println("</body></html>");
 
+        } catch (IllegalArgumentException e) {
+            // A malformed empId, after or limit is the client's mistake, not ours
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.println("<p>Error: " + e.getMessage() + "</p>");
         } catch (Exception e) {
+            recordError("/employee", e);
             out.println("<p>Error: " + e.getMessage() + "</p>");
         }
     }
 
-    void displayTable(PrintWriter out, ResultSet rs) throws SQLException {
+    // Returns null when no employee has the given ID
+    EmployeeRow loadEmployee(int id) throws SQLException {
+        String query = "SELECT EmpID, Name, Salary FROM Employee WHERE EmpID = ?";
+        try (Connection conn = empPool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return new EmployeeRow(rs.getInt("EmpID"), rs.getString("Name"), rs.getDouble("Salary"));
+            }
+        }
+    }
+
+    void displayEmployee(PrintWriter out, EmployeeRow row) {
+        out.println("<table border='1'>");
+        out.println("<tr><th>EmpID</th><th>Name</th><th>Salary</th></tr>");
+        if (row != null) {
+            out.print("<tr><td>");
+            out.print(row.empId);
+            out.print("</td><td>");
+            out.print(row.name);
+            out.print("</td><td>");
+            out.print(row.salary);
+            out.println("</td></tr>");
+        }
+        out.println("</table>");
+    }
+
+    // Keyset-paginated listing: ?after=<EmpID>&limit=N. Rows are written as they
+    // come off the ResultSet and flushed in chunks, so memory stays flat.
+    void listEmployees(PrintWriter out, Connection conn, HttpServletRequest request)
+            throws SQLException {
+        String afterParam = request.getParameter("after");
+        boolean firstPage = afterParam == null || afterParam.isEmpty();
+        int after = firstPage ? Integer.MIN_VALUE : Integer.parseInt(afterParam);
+        int limit = pageLimit(request.getParameter("limit"));
+
+        String query = "SELECT EmpID, Name, Salary FROM Employee WHERE EmpID > ? ORDER BY EmpID LIMIT ?";
+        TableSummary summary;
+        try (PreparedStatement ps = conn.prepareStatement(query,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(limit + 1);
+            ps.setInt(1, after);
+            ps.setInt(2, limit + 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                summary = displayTable(out, rs, limit);
+            }
+        }
+
+        out.println("<p>");
+        if (!firstPage) {
+            long before = summary.rows > 0 ? summary.firstId : (long) after + 1;
+            Integer prevAfter = previousPageCursor(conn, before, limit);
+            out.print("<a href='employee?");
+            if (prevAfter != null) {
+                out.print("after=");
+                out.print(prevAfter.intValue());
+                out.print("&amp;");
+            }
+            out.print("limit=");
+            out.print(limit);
+            out.println("'>&laquo; Prev</a>");
+        }
+        if (summary.hasMore) {
+            out.print("<a href='employee?after=");
+            out.print(summary.lastId);
+            out.print("&amp;limit=");
+            out.print(limit);
+            out.println("'>Next &raquo;</a>");
+        }
+        out.println("</p>");
+    }
+
+    int pageLimit(String limitParam) {
+        int limit = pageSize;
+        if (limitParam != null && !limitParam.isEmpty()) {
+            limit = Integer.parseInt(limitParam);
+        }
+        return Math.max(1, Math.min(limit, maxPageSize));
+    }
+
+    // Returns the "after" cursor of the page preceding the row with the given
+    // EmpID, or null when that page is the first one. Only touches the index.
+    Integer previousPageCursor(Connection conn, long before, int limit) throws SQLException {
+        String query = "SELECT EmpID FROM Employee WHERE EmpID < ? ORDER BY EmpID DESC LIMIT 1 OFFSET ?";
+        try (PreparedStatement ps = conn.prepareStatement(query)) {
+            ps.setLong(1, before);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+
+    TableSummary displayTable(PrintWriter out, ResultSet rs, int maxRows) throws SQLException {
+        TableSummary summary = new TableSummary();
         out.println("<table border='1'>");
         out.println("<tr><th>EmpID</th><th>Name</th><th>Salary</th></tr>");
         while (rs.next()) {
-            out.println("<tr>");
-            out.println("<td>" + rs.getInt("EmpID") + "</td>");
-            out.println("<td>" + rs.getString("Name") + "</td>");
-            out.println("<td>" + rs.getDouble("Salary") + "</td>");
-            out.println("</tr>");
+            if (summary.rows == maxRows) {
+                summary.hasMore = true;
+                break;
+            }
+            int id = rs.getInt("EmpID");
+            out.print("<tr><td>");
+            out.print(id);
+            out.print("</td><td>");
+            out.print(rs.getString("Name"));
+            out.print("</td><td>");
+            out.print(rs.getDouble("Salary"));
+            out.println("</td></tr>");
+
+            if (summary.rows == 0) {
+                summary.firstId = id;
+            }
+            summary.lastId = id;
+            if (++summary.rows % FLUSH_EVERY_ROWS == 0) {
+                out.flush();
+            }
         }
         out.println("</table>");
+        return summary;
+    }
+
+    static class TableSummary {
+        int rows;
+        int firstId;
+        int lastId;
+        boolean hasMore;
+    }
+
+    // ========== CONDITIONAL GET SECTION ==========
+    // /employee responses carry an ETag and Last-Modified taken from the
+    // EmployeeVersion row, which triggers bump on every Employee change:
+    //
+    //   CREATE TABLE EmployeeVersion (
+    //       id TINYINT PRIMARY KEY,
+    //       version BIGINT NOT NULL,
+    //       updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)
+    //   );
+    //   INSERT INTO EmployeeVersion (id, version) VALUES (1, 0);
+    //   CREATE TRIGGER employee_ai AFTER INSERT ON Employee FOR EACH ROW
+    //       UPDATE EmployeeVersion SET version = version + 1, updated_at = CURRENT_TIMESTAMP(3) WHERE id = 1;
+    //   (plus the same trigger AFTER UPDATE and AFTER DELETE)
+    //
+    // A matching If-None-Match (or If-Modified-Since) is answered with 304
+    // without running the Employee query. Without the table this is a no-op.
+    boolean employeeNotModified(HttpServletRequest request, HttpServletResponse response) {
+        TableVersion version = currentEmployeeVersion();
+        if (version == null) {
+            return false;
+        }
+        String etag = "\"emp-" + version.version + "\"";
+        response.setHeader("ETag", etag);
+        response.setDateHeader("Last-Modified", version.updatedAt);
+        response.setHeader("Cache-Control", "no-cache");
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        boolean notModified;
+        if (ifNoneMatch != null) {
+            notModified = etagMatches(ifNoneMatch, etag);
+        } else {
+            long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+            // HTTP dates have one-second precision
+            notModified = ifModifiedSince >= 0 && version.updatedAt / 1000 <= ifModifiedSince / 1000;
+        }
+        if (notModified) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+        return notModified;
+    }
+
+    static boolean etagMatches(String header, String etag) {
+        for (String candidate : header.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Returns null when versioning is unavailable, in which case callers
+    // simply serve the full response
+    TableVersion currentEmployeeVersion() {
+        if (versionTableMissing) {
+            return null;
+        }
+        TableVersion cached = employeeVersion.get();
+        long now = System.nanoTime();
+        if (cached != null && now - cached.checkedAt < TimeUnit.MILLISECONDS.toNanos(versionCheckMs)) {
+            return cached;
+        }
+        String query = "SELECT version, updated_at FROM EmployeeVersion WHERE id = 1";
+        try (Connection conn = empPool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(query);
+             ResultSet rs = ps.executeQuery()) {
+            if (!rs.next()) {
+                versionTableMissing = true;
+                log("EmployeeVersion has no row with id = 1, conditional GET disabled");
+                return null;
+            }
+            TableVersion fresh = new TableVersion(rs.getLong(1), rs.getTimestamp(2).getTime(), now);
+            TableVersion previous = employeeVersion.getAndSet(fresh);
+            // Anything cached under an older version may be stale now
+            if (employeeCache != null && previous != null && previous.version != fresh.version) {
+                employeeCache.clear();
+            }
+            return fresh;
+        } catch (SQLSyntaxErrorException e) {
+            versionTableMissing = true;
+            log("EmployeeVersion table not found, conditional GET disabled: " + e.getMessage());
+            return null;
+        } catch (SQLException e) {
+            log("Could not read Employee version: " + e.getMessage());
+            return null;
+        }
+    }
+
+    static class TableVersion {
+        final long version;
+        final long updatedAt;
+        final long checkedAt;
+
+        TableVersion(long version, long updatedAt, long checkedAt) {
+            this.version = version;
+            this.updatedAt = updatedAt;
+            this.checkedAt = checkedAt;
+        }
+    }
+
+    // ========== EMPLOYEE EXPORT SECTION ==========
+    // /employee/export?format=csv|ndjson streams the whole Employee table with
+    // constant memory: rows come off a streaming ResultSet and are encoded
+    // straight into a byte buffer, gzipped when the client accepts it.
+    // A failure after the response is committed cannot change the status, so
+    // the export ends with an error record ({"error":...} or a "#ERROR," CSV
+    // line) and a gzipped export is left without its trailer, which makes
+    // the truncation an error for any gzip reader.
+    void handleEmployeeExport(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        String format = request.getParameter("format");
+        boolean ndjson = "ndjson".equalsIgnoreCase(format) || "json".equalsIgnoreCase(format);
+        if (!ndjson && format != null && !format.isEmpty() && !"csv".equalsIgnoreCase(format)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "format must be csv or ndjson");
+            return;
+        }
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        String query = "SELECT EmpID, Name, Salary FROM Employee ORDER BY EmpID";
+        ExportEncoder out = null;
+        try (Connection conn = empPool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(query,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // Integer.MIN_VALUE makes Connector/J stream rows one at a time
+            // instead of buffering the whole result in memory
+            boolean mysql = conn.getMetaData().getDriverName().toLowerCase().contains("mysql");
+            ps.setFetchSize(mysql ? Integer.MIN_VALUE : 1000);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                response.setContentType(ndjson ? "application/x-ndjson" : "text/csv");
+                response.setCharacterEncoding("UTF-8");
+                response.setHeader("Content-Disposition",
+                        "attachment; filename=employees." + (ndjson ? "ndjson" : "csv"));
+                if (gzip) {
+                    response.setHeader("Content-Encoding", "gzip");
+                }
+                response.setHeader("Vary", "Accept-Encoding");
+
+                OutputStream body = response.getOutputStream();
+                if (gzip) {
+                    // Sync flush so an error record can be pushed out without finishing the stream
+                    body = new GZIPOutputStream(body, 8192, true);
+                }
+                out = new ExportEncoder(body, 64 * 1024);
+                if (!ndjson) {
+                    out.writeAscii("EmpID,Name,Salary\n");
+                }
+                while (rs.next()) {
+                    int id = rs.getInt(1);
+                    String name = rs.getString(2);
+                    long cents = Math.round(rs.getDouble(3) * 100);
+                    if (ndjson) {
+                        out.writeAscii("{\"empId\":");
+                        out.writeLong(id);
+                        out.writeAscii(",\"name\":");
+                        out.writeJsonString(name);
+                        out.writeAscii(",\"salary\":");
+                        out.writeCents(cents);
+                        out.writeAscii("}\n");
+                    } else {
+                        out.writeLong(id);
+                        out.writeByte(',');
+                        out.writeCsvField(name);
+                        out.writeByte(',');
+                        out.writeCents(cents);
+                        out.writeByte('\n');
+                    }
+                }
+                out.close();
+            }
+        } catch (SQLException e) {
+            recordError("/employee/export", e);
+            if (!response.isCommitted()) {
+                response.reset();
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
+            } else if (out != null) {
+                abortExport(out, ndjson, e);
+            }
+        }
+    }
+
+    void abortExport(ExportEncoder out, boolean ndjson, SQLException e) {
+        String message = "export incomplete: " + e.getMessage();
+        try {
+            if (ndjson) {
+                out.writeAscii("{\"error\":");
+                out.writeJsonString(message);
+                out.writeAscii("}\n");
+            } else {
+                out.writeAscii("#ERROR,");
+                out.writeCsvField(message);
+                out.writeByte('\n');
+            }
+            out.flush();
+        } catch (IOException writeError) {
+            log("Could not write export error record: " + writeError.getMessage());
+        }
     }
 
     // ========== ATTENDANCE SECTION ==========
-    void handleAttendance(PrintWriter out, HttpServletRequest request) {
+    void handleAttendance(PrintWriter out, HttpServletRequest request, HttpServletResponse response) {
         String studentId = request.getParameter("studentId");
         String date = request.getParameter("date");
         String status = request.getParameter("status");
 
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            Connection conn = DriverManager.getConnection(ATT_DB_URL, DB_USER, DB_PASS);
-
-            String query = "INSERT INTO Attendance (StudentID, Date, Status) VALUES (?, ?, ?)";
-            PreparedStatement ps = conn.prepareStatement(query);
+        String query = "INSERT INTO Attendance (StudentID, Date, Status) VALUES (?, ?, ?)";
+        try (Connection conn = attPool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setInt(1, Integer.parseInt(studentId));
             ps.setString(2, date);
             ps.setString(3, status);
@@ -141,13 +1064,1932 @@ public class CombinedServlet extends HttpServlet {
             out.println("<br><a href='attendance.jsp'>Mark Another</a>");
             out.println("</body></html>");
 
-            conn.close();
-
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.println("<html><body>");
+            out.println("<h2>Error</h2>");
+            out.println("<p>" + e.getMessage() + "</p>");
+            out.println("</body></html>");
         } catch (Exception e) {
+            recordError("/attendance", e);
             out.println("<html><body>");
             out.println("<h2>Error</h2>");
             out.println("<p>" + e.getMessage() + "</p>");
             out.println("</body></html>");
         }
     }
+
+    // Write-behind variant of handleAttendance: the row is acknowledged once it
+    // is queued and the background writer commits it with others in a group.
+    void queueAttendance(PrintWriter out, HttpServletRequest request, HttpServletResponse response) {
+        String studentId = request.getParameter("studentId");
+        String date = request.getParameter("date");
+        String status = request.getParameter("status");
+
+        // Nothing reports back once the 202 is sent, so reject here anything
+        // the insert would fail on
+        BulkAttendanceRow row = new BulkAttendanceRow(1, studentId, status);
+        out.println("<html><body>");
+        try {
+            if (!row.validate()) {
+                throw new IllegalArgumentException(row.message);
+            }
+            if (date == null || date.trim().isEmpty()) {
+                throw new IllegalArgumentException("A date is required");
+            }
+            date = LocalDate.parse(date.trim()).toString();
+            if (attendanceWriter.offer(row.parsedId, date, row.status)) {
+                response.setStatus(HttpServletResponse.SC_ACCEPTED);
+                out.println("<h2>Accepted</h2>");
+                out.println("<p>Attendance queued for Student ID: " + studentId + "</p>");
+                out.println("<p>Date: " + date + "</p>");
+                out.println("<p>Status: " + status + "</p>");
+            } else {
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                response.setHeader("Retry-After", "1");
+                out.println("<h2>Busy</h2>");
+                out.println("<p>Attendance queue is full, please retry shortly.</p>");
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.println("<h2>Error</h2>");
+            out.println("<p>" + e.getMessage() + "</p>");
+        }
+        out.println("<br><a href='attendance.jsp'>Mark Another</a>");
+        out.println("</body></html>");
+    }
+
+    // ========== BULK ATTENDANCE SECTION ==========
+    // Marks a whole class for one date in a single transaction. Accepts form
+    // arrays (studentId=..&status=..), text/csv lines "studentId,status" or
+    // JSON {"date": "...", "records": [{"studentId": 1, "status": "..."}]}.
+    // Pass atomic=false to commit the rows that succeed when others fail.
+    void handleBulkAttendance(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        String contentType = request.getContentType() == null ? "" : request.getContentType().toLowerCase();
+        boolean json = contentType.contains("json");
+        String date = request.getParameter("date");
+        boolean atomic = !"false".equalsIgnoreCase(request.getParameter("atomic"));
+        List<BulkAttendanceRow> rows = new ArrayList<>();
+
+        try {
+            if (json) {
+                date = parseJsonAttendance(request.getReader(), rows, date);
+            } else if (contentType.contains("csv") || contentType.startsWith("text/plain")) {
+                parseCsvAttendance(request.getReader(), rows);
+            } else {
+                String[] ids = request.getParameterValues("studentId");
+                String[] statuses = request.getParameterValues("status");
+                int count = ids == null ? 0 : ids.length;
+                for (int i = 0; i < count; i++) {
+                    String status = statuses != null && i < statuses.length ? statuses[i] : null;
+                    rows.add(new BulkAttendanceRow(i + 1, ids[i], status));
+                }
+            }
+            if (date == null || date.trim().isEmpty()) {
+                throw new IllegalArgumentException("A date is required");
+            }
+            date = LocalDate.parse(date.trim()).toString();
+            if (rows.isEmpty()) {
+                throw new IllegalArgumentException("No attendance rows supplied");
+            }
+            if (rows.size() > bulkMaxRows) {
+                throw new IllegalArgumentException("At most " + bulkMaxRows + " rows per request");
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            writeBulkResult(response, json, date, rows, "Error: " + e.getMessage());
+            return;
+        }
+
+        String summary;
+        try {
+            int inserted = insertAttendanceBatch(date, rows, atomic);
+            summary = inserted + " of " + rows.size() + " rows inserted";
+            if (inserted == 0) {
+                boolean anyInvalid = rows.stream().anyMatch(r -> "invalid".equals(r.outcome));
+                response.setStatus(anyInvalid ? HttpServletResponse.SC_BAD_REQUEST : HttpServletResponse.SC_CONFLICT);
+            }
+        } catch (SQLException e) {
+            recordError("/attendance/bulk", e);
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            summary = "Error: " + e.getMessage();
+        }
+        writeBulkResult(response, json, date, rows, summary);
+    }
+
+    String parseJsonAttendance(BufferedReader reader, List<BulkAttendanceRow> rows, String date)
+            throws IOException {
+        StringBuilder body = new StringBuilder();
+        char[] buf = new char[4096];
+        int n;
+        while ((n = reader.read(buf)) != -1) {
+            body.append(buf, 0, n);
+        }
+        Object parsed = MiniJson.parse(body.toString());
+        Object records = parsed;
+        if (parsed instanceof Map) {
+            Map<?, ?> root = (Map<?, ?>) parsed;
+            if (root.get("date") != null) {
+                date = String.valueOf(root.get("date"));
+            }
+            records = root.get("records");
+        }
+        if (!(records instanceof List)) {
+            throw new IllegalArgumentException("Expected a \"records\" array");
+        }
+        int index = 0;
+        for (Object record : (List<?>) records) {
+            index++;
+            if (!(record instanceof Map)) {
+                throw new IllegalArgumentException("Record " + index + " is not an object");
+            }
+            Map<?, ?> fields = (Map<?, ?>) record;
+            rows.add(new BulkAttendanceRow(index, jsonText(fields.get("studentId")), jsonText(fields.get("status"))));
+        }
+        return date;
+    }
+
+    static String jsonText(Object value) {
+        return value == null ? null : String.valueOf(value);
+    }
+
+    void parseCsvAttendance(BufferedReader reader, List<BulkAttendanceRow> rows) throws IOException {
+        String line;
+        int index = 0;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || (index == 0 && rows.isEmpty() && line.toLowerCase().startsWith("studentid"))) {
+                continue;
+            }
+            index++;
+            int comma = line.indexOf(',');
+            if (comma < 0) {
+                rows.add(new BulkAttendanceRow(index, line, null));
+            } else {
+                rows.add(new BulkAttendanceRow(index, line.substring(0, comma), line.substring(comma + 1)));
+            }
+        }
+    }
+
+    // Returns the number of rows committed and records the outcome on each row
+    int insertAttendanceBatch(String date, List<BulkAttendanceRow> rows, boolean atomic)
+            throws SQLException {
+        List<BulkAttendanceRow> valid = new ArrayList<>(rows.size());
+        for (BulkAttendanceRow row : rows) {
+            if (row.validate()) {
+                valid.add(row);
+            }
+        }
+        if (valid.isEmpty() || (atomic && valid.size() < rows.size())) {
+            for (BulkAttendanceRow row : valid) {
+                row.outcome = "skipped";
+                row.message = "Batch rejected because of invalid rows";
+            }
+            return 0;
+        }
+
+        String query = "INSERT INTO Attendance (StudentID, Date, Status) VALUES (?, ?, ?)";
+        try (Connection conn = attPool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
+            conn.setAutoCommit(false);
+            boolean failed = false;
+            for (int start = 0; start < valid.size(); start += bulkBatchSize) {
+                List<BulkAttendanceRow> chunk = valid.subList(start, Math.min(start + bulkBatchSize, valid.size()));
+                for (BulkAttendanceRow row : chunk) {
+                    ps.setInt(1, row.parsedId);
+                    ps.setString(2, date);
+                    ps.setString(3, row.status);
+                    ps.addBatch();
+                }
+                int[] counts;
+                try {
+                    counts = ps.executeBatch();
+                } catch (BatchUpdateException e) {
+                    counts = e.getUpdateCounts();
+                    failed = true;
+                    for (int i = 0; i < chunk.size(); i++) {
+                        BulkAttendanceRow row = chunk.get(i);
+                        if (i >= counts.length || counts[i] == Statement.EXECUTE_FAILED) {
+                            row.outcome = "failed";
+                            row.message = e.getMessage();
+                        }
+                    }
+                    ps.clearBatch();
+                }
+                for (int i = 0; i < Math.min(counts.length, chunk.size()); i++) {
+                    if (counts[i] >= 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                        chunk.get(i).outcome = "inserted";
+                    }
+                }
+                if (failed && atomic) {
+                    break;
+                }
+            }
+
+            if (failed && atomic) {
+                conn.rollback();
+                for (BulkAttendanceRow row : valid) {
+                    if (!"failed".equals(row.outcome)) {
+                        row.outcome = "rolled back";
+                    }
+                }
+                return 0;
+            }
+            conn.commit();
+            int inserted = 0;
+            for (BulkAttendanceRow row : valid) {
+                if ("inserted".equals(row.outcome)) {
+                    inserted++;
+                }
+            }
+            return inserted;
+        }
+    }
+
+    void writeBulkResult(HttpServletResponse response, boolean json, String date,
+                         List<BulkAttendanceRow> rows, String summary) throws IOException {
+        if (json) {
+            response.setContentType("application/json");
+            PrintWriter out = response.getWriter();
+            out.print("{\"date\":");
+            out.print(date == null ? "null" : MiniJson.quote(date));
+            out.print(",\"summary\":");
+            out.print(MiniJson.quote(summary));
+            out.print(",\"results\":[");
+            for (int i = 0; i < rows.size(); i++) {
+                BulkAttendanceRow row = rows.get(i);
+                if (i > 0) {
+                    out.print(',');
+                }
+                out.print("{\"row\":");
+                out.print(row.index);
+                out.print(",\"studentId\":");
+                out.print(MiniJson.quote(row.studentId));
+                out.print(",\"outcome\":");
+                out.print(MiniJson.quote(row.outcome));
+                if (!row.message.isEmpty()) {
+                    out.print(",\"message\":");
+                    out.print(MiniJson.quote(row.message));
+                }
+                out.print('}');
+            }
+            out.println("]}");
+            return;
+        }
+
+        response.setContentType("text/html");
+        PrintWriter out = response.getWriter();
+        out.println("<html><body>");
+        out.println("<h2>Bulk Attendance</h2>");
+        out.println("<p>Date: " + date + "</p>");
+        out.println("<p>" + summary + "</p>");
+        out.println("<table border='1'>");
+        out.println("<tr><th>Row</th><th>Student ID</th><th>Status</th><th>Outcome</th><th>Message</th></tr>");
+        for (BulkAttendanceRow row : rows) {
+            out.println("<tr><td>" + row.index + "</td><td>" + row.studentId + "</td><td>" + row.status
+                    + "</td><td>" + row.outcome + "</td><td>" + row.message + "</td></tr>");
+        }
+        out.println("</table>");
+        out.println("<br><a href='attendance.jsp'>Mark Another</a>");
+        out.println("</body></html>");
+    }
+}
+
+// ========== DATA SOURCE REGISTRY ==========
+// Maps route prefixes to the bulkhead of the database they use
+class DataSourceRegistry implements AutoCloseable {
+    private final Map<String, Bulkhead> byRoute = new LinkedHashMap<>();
+    private final List<Bulkhead> bulkheads = new ArrayList<>();
+
+    void register(Bulkhead bulkhead, String... routePrefixes) {
+        bulkheads.add(bulkhead);
+        for (String prefix : routePrefixes) {
+            byRoute.put(prefix, bulkhead);
+        }
+    }
+
+    Bulkhead forRoute(String path) {
+        for (Map.Entry<String, Bulkhead> entry : byRoute.entrySet()) {
+            if (path.startsWith(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    List<Bulkhead> all() {
+        return bulkheads;
+    }
+
+    @Override
+    public void close() {
+        for (Bulkhead bulkhead : bulkheads) {
+            bulkhead.close();
+        }
+    }
+}
+
+// Concurrency limit for one database. While the database is healthy a request
+// may wait up to maxWaitMs for a permit, which absorbs short bursts; under
+// pressure, or once that wait is over, it is rejected rather than queued.
+class Bulkhead implements AutoCloseable {
+    private final String name;
+    private final ConnectionPool pool;
+    private final AdaptiveLimiter limiter;
+    private final ExecutorService executor;
+    private final long timeoutMs;
+    private final long maxWaitMs;
+    private final int retryAfterSec;
+    private final LongAdder admitted = new LongAdder();
+
+    Bulkhead(String name, ConnectionPool pool, AdaptiveLimiter limiter, ExecutorService executor,
+             long timeoutMs, long maxWaitMs, int retryAfterSec) {
+        this.name = name;
+        this.pool = pool;
+        this.limiter = limiter;
+        this.executor = executor;
+        this.timeoutMs = timeoutMs;
+        this.maxWaitMs = maxWaitMs;
+        this.retryAfterSec = retryAfterSec;
+    }
+
+    boolean tryEnter(AdaptiveLimiter.Priority priority) {
+        boolean entered;
+        try {
+            entered = limiter.acquire(priority, TimeUnit.MILLISECONDS.toNanos(maxWaitMs));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            entered = false;
+        }
+        if (entered) {
+            admitted.increment();
+        }
+        return entered;
+    }
+
+    void exit(long latencyNanos, AdaptiveLimiter.Outcome outcome) {
+        limiter.release(latencyNanos, outcome);
+    }
+
+    String getName() { return name; }
+    ConnectionPool getPool() { return pool; }
+    AdaptiveLimiter getLimiter() { return limiter; }
+    ExecutorService getExecutor() { return executor; }
+    long getTimeoutMs() { return timeoutMs; }
+    int getRetryAfterSec() { return retryAfterSec; }
+    int getMaxConcurrent() { return limiter.getMaxLimit(); }
+    int getInFlight() { return limiter.getInFlight(); }
+    long getAdmitted() { return admitted.sum(); }
+
+    @Override
+    public void close() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
+
+// ========== ADAPTIVE LIMITER ==========
+// Gradient concurrency limit. The long-term average latency stands for what
+// the database delivers when nothing is queueing; when recent latency rises
+// above it the limit shrinks in proportion, and while the two agree the limit
+// grows by about its square root. A timeout cuts the limit straight away.
+// Under pressure (latency rising, or the limit nearly used up) lower
+// priorities are held to their share of the limit, so they are shed first and
+// the rest stays free for high-priority requests. Otherwise they may use any
+// headroom up to PRESSURE of the limit.
+class AdaptiveLimiter {
+    enum Priority { HIGH, NORMAL, LOW }
+
+    // IGNORED releases the permit without feeding a latency sample
+    enum Outcome { SUCCESS, DROPPED, IGNORED }
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF = 0.9;
+    private static final int LONG_WINDOW = 600;
+    private static final int SHORT_WINDOW = 10;
+    private static final double PRESSURE = 0.9;
+
+    private final boolean adaptive;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double[] shares;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder[] rejected = new LongAdder[Priority.values().length];
+    private volatile double limit;
+    private volatile boolean congested;
+    private final Object admission = new Object();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private double longRttNanos;
+    private double shortRttNanos;
+
+    AdaptiveLimiter(boolean adaptive, int initialLimit, int minLimit, int maxLimit,
+                    int normalPercent, int lowPercent) {
+        this.adaptive = adaptive;
+        this.maxLimit = Math.max(1, maxLimit);
+        this.minLimit = Math.max(1, Math.min(minLimit, this.maxLimit));
+        this.limit = adaptive ? clamp(initialLimit, this.minLimit, this.maxLimit) : this.maxLimit;
+        this.shares = new double[]{1.0, normalPercent / 100.0, lowPercent / 100.0};
+        for (int i = 0; i < rejected.length; i++) {
+            rejected[i] = new LongAdder();
+        }
+    }
+
+    // Takes a permit if the priority's share allows it. While the limiter is
+    // not congested it waits up to maxWaitNanos for one to come free.
+    boolean acquire(Priority priority, long maxWaitNanos) throws InterruptedException {
+        if (admit(priority)) {
+            return true;
+        }
+        if (maxWaitNanos > 0 && !congested) {
+            long deadline = System.nanoTime() + maxWaitNanos;
+            waiting.incrementAndGet();
+            try {
+                synchronized (admission) {
+                    while (true) {
+                        if (admit(priority)) {
+                            return true;
+                        }
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0 || congested) {
+                            break;
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(admission, remaining);
+                    }
+                }
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+        rejected[priority.ordinal()].increment();
+        return false;
+    }
+
+    private boolean admit(Priority priority) {
+        double share = shares[priority.ordinal()];
+        if (share < 1.0 && !congested) {
+            share = Math.max(share, PRESSURE);
+        }
+        int allowed = Math.max(1, (int) (limit * share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release(long latencyNanos, Outcome outcome) {
+        int wasInFlight = inFlight.getAndDecrement();
+        if (waiting.get() > 0) {
+            synchronized (admission) {
+                admission.notifyAll();
+            }
+        }
+        if (adaptive && outcome != Outcome.IGNORED) {
+            update(latencyNanos, outcome == Outcome.DROPPED, wasInFlight);
+        }
+    }
+
+    private synchronized void update(long latencyNanos, boolean dropped, int wasInFlight) {
+        if (dropped) {
+            congested = true;
+            limit = clamp(limit * BACKOFF, minLimit, maxLimit);
+            return;
+        }
+        if (longRttNanos == 0) {
+            longRttNanos = latencyNanos;
+            shortRttNanos = latencyNanos;
+        } else {
+            longRttNanos += (latencyNanos - longRttNanos) / LONG_WINDOW;
+            shortRttNanos += (latencyNanos - shortRttNanos) / SHORT_WINDOW;
+        }
+        // Once a slow spell is over, let the baseline catch up quickly
+        if (longRttNanos > 2 * shortRttNanos) {
+            longRttNanos *= 0.95;
+        }
+        // A limit that is mostly unused says nothing about capacity, and latency
+        // that rises meanwhile is not caused by our concurrency, so only adjust
+        // while requests are actually pressing against the limit
+        if (wasInFlight < limit / 2) {
+            congested = false;
+            return;
+        }
+        double gradient = clamp(TOLERANCE * longRttNanos / shortRttNanos, 0.5, 1.0);
+        congested = gradient < 1.0;
+        double next = limit * (1 - SMOOTHING) + (limit * gradient + Math.sqrt(limit)) * SMOOTHING;
+        limit = clamp(next, minLimit, maxLimit);
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    int getLimit() { return (int) limit; }
+    int getMaxLimit() { return maxLimit; }
+    int getInFlight() { return inFlight.get(); }
+    boolean isCongested() { return congested; }
+    long getRejected(Priority priority) { return rejected[priority.ordinal()].sum(); }
+    synchronized double getLongRttNanos() { return longRttNanos; }
+    synchronized double getShortRttNanos() { return shortRttNanos; }
+}
+
+// ========== SERVLET METRICS ==========
+// Per-route counters and latency histograms. Each request is timed on the
+// thread that handles it; the pool listener callbacks add connection-acquire
+// and statement-execute time to the current request, and whatever is left
+// over is attributed to rendering.
+class ServletMetrics implements ConnectionPool.Listener {
+
+    static final String START_ATTRIBUTE = "metrics.start";
+    static final String[] ROUTES = {"/login", "/employee", "/employee/export",
+            "/attendance", "/attendance/bulk", "/metrics"};
+    static final String[] PHASES = {"queue", "acquire", "execute", "render"};
+    static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Map<String, RouteMetrics> routes = new LinkedHashMap<>();
+    private final RouteMetrics other = new RouteMetrics("other");
+    private final ThreadLocal<Sample> current = new ThreadLocal<>();
+
+    ServletMetrics() {
+        for (String route : ROUTES) {
+            routes.put(route, new RouteMetrics(route));
+        }
+    }
+
+    void begin(HttpServletRequest request) {
+        long now = System.nanoTime();
+        Object queued = request.getAttribute(START_ATTRIBUTE);
+        long start = queued instanceof Long ? (Long) queued : now;
+        current.set(new Sample(routes.getOrDefault(request.getServletPath(), other), start, now));
+    }
+
+    void end(HttpServletResponse response) {
+        Sample sample = current.get();
+        if (sample == null) {
+            return;
+        }
+        current.remove();
+        long now = System.nanoTime();
+        RouteMetrics route = sample.route;
+        long handled = now - sample.begin;
+        route.requests.increment();
+        if (sample.error || response.getStatus() >= 500) {
+            route.errors.increment();
+        }
+        route.total.record(now - sample.start);
+        route.phases[0].record(sample.begin - sample.start);
+        route.phases[1].record(sample.acquireNanos);
+        route.phases[2].record(sample.executeNanos);
+        route.phases[3].record(Math.max(0, handled - sample.acquireNanos - sample.executeNanos));
+    }
+
+    // Requests turned away before their handler ran (shed by the bulkhead,
+    // executor full or timed out in the queue) never reach begin/end
+    void rejected(HttpServletRequest request, int status) {
+        RouteMetrics route = routes.getOrDefault(request.getServletPath(), other);
+        route.requests.increment();
+        route.rejected.increment();
+        if (status >= 500) {
+            route.errors.increment();
+        }
+        Object queued = request.getAttribute(START_ATTRIBUTE);
+        if (queued instanceof Long) {
+            route.total.record(System.nanoTime() - (Long) queued);
+        }
+    }
+
+    void markError() {
+        Sample sample = current.get();
+        if (sample != null) {
+            sample.error = true;
+        }
+    }
+
+    @Override
+    public void connectionAcquired(long waitNanos) {
+        Sample sample = current.get();
+        if (sample != null) {
+            sample.acquireNanos += waitNanos;
+        }
+    }
+
+    @Override
+    public void statementExecuted(long nanos) {
+        Sample sample = current.get();
+        if (sample != null) {
+            sample.executeNanos += nanos;
+        }
+    }
+
+    void writePrometheus(StringBuilder sb) {
+        writeHeader(sb, "combined_requests_total", "counter", "Requests handled, by route");
+        for (RouteMetrics route : allRoutes()) {
+            sb.append("combined_requests_total{route=\"").append(route.name).append("\"} ")
+                    .append(route.requests.sum()).append('\n');
+        }
+        writeHeader(sb, "combined_request_errors_total", "counter", "Requests that failed, by route");
+        for (RouteMetrics route : allRoutes()) {
+            sb.append("combined_request_errors_total{route=\"").append(route.name).append("\"} ")
+                    .append(route.errors.sum()).append('\n');
+        }
+        writeHeader(sb, "combined_requests_rejected_total", "counter",
+                "Requests answered 503 before their handler ran, by route");
+        for (RouteMetrics route : allRoutes()) {
+            sb.append("combined_requests_rejected_total{route=\"").append(route.name).append("\"} ")
+                    .append(route.rejected.sum()).append('\n');
+        }
+        writeHeader(sb, "combined_request_duration_seconds", "summary",
+                "Request latency from arrival to completion, by route");
+        for (RouteMetrics route : allRoutes()) {
+            route.total.writeSummary(sb, "combined_request_duration_seconds",
+                    "route=\"" + route.name + "\"", QUANTILES);
+        }
+        writeHeader(sb, "combined_request_phase_seconds", "summary",
+                "Request latency split into queue, acquire, execute and render phases");
+        for (RouteMetrics route : allRoutes()) {
+            for (int i = 0; i < PHASES.length; i++) {
+                route.phases[i].writeSummary(sb, "combined_request_phase_seconds",
+                        "route=\"" + route.name + "\",phase=\"" + PHASES[i] + "\"", QUANTILES);
+            }
+        }
+    }
+
+    static void writeHeader(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private List<RouteMetrics> allRoutes() {
+        List<RouteMetrics> all = new ArrayList<>(routes.values());
+        all.add(other);
+        return all;
+    }
+
+    static class RouteMetrics {
+        final String name;
+        final LongAdder requests = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LatencyHistogram total = new LatencyHistogram();
+        final LatencyHistogram[] phases = new LatencyHistogram[PHASES.length];
+
+        RouteMetrics(String name) {
+            this.name = name;
+            for (int i = 0; i < phases.length; i++) {
+                phases[i] = new LatencyHistogram();
+            }
+        }
+    }
+
+    private static class Sample {
+        final RouteMetrics route;
+        final long start;
+        final long begin;
+        long acquireNanos;
+        long executeNanos;
+        boolean error;
+
+        Sample(RouteMetrics route, long start, long begin) {
+            this.route = route;
+            this.start = start;
+            this.begin = begin;
+        }
+    }
+}
+
+// ========== EMPLOYEE CACHE ==========
+class EmployeeRow {
+    final int empId;
+    final String name;
+    final double salary;
+
+    EmployeeRow(int empId, String name, double salary) {
+        this.empId = empId;
+        this.name = name;
+        this.salary = salary;
+    }
+}
+
+// Bounded LRU read-through cache keyed by EmpID. Missing IDs are cached as
+// negative entries with their own TTL, and concurrent misses on the same ID
+// share a single load.
+class EmployeeCache {
+
+    interface Loader {
+        EmployeeRow load(int empId) throws SQLException;
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final Map<Integer, Entry> entries;
+    private final ConcurrentHashMap<Integer, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+
+    // Statistics
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+
+    EmployeeCache(int maxSize, long ttlMs, long negativeTtlMs) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMs);
+        this.entries = new java.util.LinkedHashMap<Integer, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > EmployeeCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    EmployeeRow get(int empId, Loader loader) throws SQLException {
+        Integer key = empId;
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (now - entry.expiresAt < 0) {
+                    if (entry.row == null) {
+                        negativeHits.increment();
+                    } else {
+                        hits.increment();
+                    }
+                    return entry.row;
+                }
+                entries.remove(key);
+                expirations.increment();
+            }
+        }
+
+        CompletableFuture<Entry> pending = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing).row;
+        }
+
+        misses.increment();
+        try {
+            EmployeeRow row = loader.load(empId);
+            Entry entry = new Entry(row, System.nanoTime() + (row == null ? negativeTtlNanos : ttlNanos));
+            synchronized (entries) {
+                entries.put(key, entry);
+            }
+            pending.complete(entry);
+            return row;
+        } catch (SQLException | RuntimeException e) {
+            loadFailures.increment();
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, pending);
+        }
+    }
+
+    private static Entry await(CompletableFuture<Entry> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for employee load", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new SQLException(cause.getMessage(), cause);
+        }
+    }
+
+    void invalidate(int empId) {
+        synchronized (entries) {
+            entries.remove(empId);
+        }
+    }
+
+    void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    long getHits() { return hits.sum(); }
+    long getNegativeHits() { return negativeHits.sum(); }
+    long getMisses() { return misses.sum(); }
+    long getCoalesced() { return coalesced.sum(); }
+    long getEvictions() { return evictions.sum(); }
+    long getExpirations() { return expirations.sum(); }
+    long getLoadFailures() { return loadFailures.sum(); }
+
+    String stats() {
+        long lookups = hits.sum() + negativeHits.sum() + misses.sum() + coalesced.sum();
+        long hitPercent = lookups == 0 ? 0 : (hits.sum() + negativeHits.sum()) * 100 / lookups;
+        return "Employee cache: size=" + size() + ", hits=" + getHits()
+                + ", negativeHits=" + getNegativeHits() + ", misses=" + getMisses()
+                + ", coalesced=" + getCoalesced() + ", evictions=" + getEvictions()
+                + ", expirations=" + getExpirations() + ", loadFailures=" + getLoadFailures()
+                + ", hitRate=" + hitPercent + "%";
+    }
+
+    private static class Entry {
+        final EmployeeRow row;
+        final long expiresAt;
+
+        Entry(EmployeeRow row, long expiresAt) {
+            this.row = row;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
+
+// ========== ATTENDANCE WRITE-BEHIND ==========
+// Bounded queue of attendance rows drained by one writer thread. The writer
+// commits a group when it reaches batchSize rows or when flushMs has passed
+// since the first row of the group arrived, whichever comes first.
+class AttendanceWriteBehind implements AutoCloseable {
+
+    private static final String INSERT = "INSERT INTO Attendance (StudentID, Date, Status) VALUES (?, ?, ?)";
+
+    private final ConnectionPool pool;
+    private final Consumer<String> log;
+    private final BlockingQueue<Record> queue;
+    private final int batchSize;
+    private final long flushNanos;
+    private final long offerTimeoutMs;
+    private final Thread writer;
+    private volatile boolean running = true;
+    // Offers hold the read side while they enqueue; close() takes the write
+    // side to stop intake, so no row can land after the writer's final drain
+    private final ReadWriteLock intake = new ReentrantReadWriteLock();
+
+    // Statistics
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushNanosTotal = new LongAdder();
+    private final AtomicLong flushNanosMax = new AtomicLong();
+
+    AttendanceWriteBehind(ConnectionPool pool, Consumer<String> log,
+                          int capacity, int batchSize, long flushMs, long offerTimeoutMs) {
+        this.pool = pool;
+        this.log = log;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMs);
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.writer = new Thread(this::run, "attendance-write-behind");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Returns false when the queue stayed full for offerTimeoutMs (backpressure)
+    boolean offer(int studentId, String date, String status) {
+        intake.readLock().lock();
+        try {
+            if (running && queue.offer(new Record(studentId, date, status), offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                accepted.increment();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            intake.readLock().unlock();
+        }
+        rejected.increment();
+        return false;
+    }
+
+    private void run() {
+        List<Record> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Record first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushNanos;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || !running) {
+                        break;
+                    }
+                    Record next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Record> batch) {
+        long start = System.nanoTime();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(INSERT)) {
+            conn.setAutoCommit(false);
+            try {
+                for (Record r : batch) {
+                    ps.setInt(1, r.studentId);
+                    ps.setString(2, r.date);
+                    ps.setString(3, r.status);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+                written.add(batch.size());
+            } catch (SQLException e) {
+                conn.rollback();
+                ps.clearBatch();
+                writeIndividually(conn, ps, batch);
+            }
+        } catch (SQLException e) {
+            failed.add(batch.size());
+            log.accept("Dropped " + batch.size() + " attendance rows: " + e.getMessage());
+        }
+        long elapsed = System.nanoTime() - start;
+        flushes.increment();
+        flushNanosTotal.add(elapsed);
+        flushNanosMax.accumulateAndGet(elapsed, Math::max);
+    }
+
+    // A failed group is retried row by row so one bad row cannot drop the rest
+    private void writeIndividually(Connection conn, PreparedStatement ps, List<Record> batch)
+            throws SQLException {
+        for (Record r : batch) {
+            try {
+                ps.setInt(1, r.studentId);
+                ps.setString(2, r.date);
+                ps.setString(3, r.status);
+                ps.executeUpdate();
+                conn.commit();
+                written.increment();
+            } catch (SQLException e) {
+                conn.rollback();
+                failed.increment();
+                log.accept("Attendance for student " + r.studentId + " on " + r.date
+                        + " not written: " + e.getMessage());
+            }
+        }
+    }
+
+    int getDepth() { return queue.size(); }
+    int getRemainingCapacity() { return queue.remainingCapacity(); }
+    long getAccepted() { return accepted.sum(); }
+    long getRejected() { return rejected.sum(); }
+    long getWritten() { return written.sum(); }
+    long getFailed() { return failed.sum(); }
+    long getFlushes() { return flushes.sum(); }
+    long getFlushNanosTotal() { return flushNanosTotal.sum(); }
+    long getFlushNanosMax() { return flushNanosMax.get(); }
+
+    String stats() {
+        long count = flushes.sum();
+        long avgMicros = count == 0 ? 0 : flushNanosTotal.sum() / count / 1000;
+        return "Attendance write-behind: depth=" + getDepth() + ", accepted=" + getAccepted()
+                + ", rejected=" + getRejected() + ", written=" + getWritten()
+                + ", failed=" + getFailed() + ", flushes=" + count
+                + ", avgFlushUs=" + avgMicros + ", maxFlushUs=" + getFlushNanosMax() / 1000;
+    }
+
+    // Stops accepting rows and waits for everything already queued to be written
+    @Override
+    public void close() {
+        intake.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            intake.writeLock().unlock();
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.accept("Attendance write-behind closed with " + queue.size() + " rows unwritten");
+        }
+    }
+
+    private static class Record {
+        final int studentId;
+        final String date;
+        final String status;
+
+        Record(int studentId, String date, String status) {
+            this.studentId = studentId;
+            this.date = date;
+            this.status = status;
+        }
+    }
+}
+
+// ========== BULK ATTENDANCE ROW ==========
+class BulkAttendanceRow {
+    final int index;
+    final String studentId;
+    final String status;
+    int parsedId;
+    String outcome = "pending";
+    String message = "";
+
+    BulkAttendanceRow(int index, String studentId, String status) {
+        this.index = index;
+        this.studentId = studentId == null ? "" : studentId.trim();
+        this.status = status == null ? "" : status.trim();
+    }
+
+    boolean validate() {
+        try {
+            parsedId = Integer.parseInt(studentId);
+        } catch (NumberFormatException e) {
+            outcome = "invalid";
+            message = "Student ID must be a number";
+            return false;
+        }
+        if (parsedId <= 0) {
+            outcome = "invalid";
+            message = "Student ID must be positive";
+            return false;
+        }
+        if (status.isEmpty()) {
+            outcome = "invalid";
+            message = "Status is required";
+            return false;
+        }
+        return true;
+    }
+}
+
+// ========== MINIMAL JSON ==========
+// Just enough JSON for request bodies: objects become LinkedHashMap, arrays
+// ArrayList, numbers Double/Long, plus String, Boolean and null.
+class MiniJson {
+    private final String text;
+    private int pos;
+
+    private MiniJson(String text) {
+        this.text = text;
+    }
+
+    static Object parse(String text) {
+        MiniJson parser = new MiniJson(text);
+        Object value = parser.readValue();
+        parser.skipWhitespace();
+        if (parser.pos != text.length()) {
+            throw parser.error("Unexpected trailing content");
+        }
+        return value;
+    }
+
+    static String quote(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private Object readValue() {
+        skipWhitespace();
+        if (pos >= text.length()) {
+            throw error("Unexpected end of input");
+        }
+        char c = text.charAt(pos);
+        switch (c) {
+            case '{': return readObject();
+            case '[': return readArray();
+            case '"': return readString();
+            case 't': expect("true"); return Boolean.TRUE;
+            case 'f': expect("false"); return Boolean.FALSE;
+            case 'n': expect("null"); return null;
+            default: return readNumber();
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        pos++;
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return map;
+        }
+        while (true) {
+            skipWhitespace();
+            String key = readString();
+            skipWhitespace();
+            if (peek() != ':') {
+                throw error("Expected ':'");
+            }
+            pos++;
+            map.put(key, readValue());
+            skipWhitespace();
+            char c = peek();
+            pos++;
+            if (c == '}') {
+                return map;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or '}'");
+            }
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> list = new ArrayList<>();
+        pos++;
+        skipWhitespace();
+        if (peek() == ']') {
+            pos++;
+            return list;
+        }
+        while (true) {
+            list.add(readValue());
+            skipWhitespace();
+            char c = peek();
+            pos++;
+            if (c == ']') {
+                return list;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or ']'");
+            }
+        }
+    }
+
+    private String readString() {
+        if (peek() != '"') {
+            throw error("Expected string");
+        }
+        pos++;
+        StringBuilder sb = new StringBuilder();
+        while (pos < text.length()) {
+            char c = text.charAt(pos++);
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c == '\\') {
+                char e = text.charAt(pos++);
+                switch (e) {
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default: sb.append(e);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private Object readNumber() {
+        int start = pos;
+        while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+            pos++;
+        }
+        String number = text.substring(start, pos);
+        if (number.isEmpty()) {
+            throw error("Unexpected character");
+        }
+        try {
+            if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+                return Long.parseLong(number);
+            }
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw error("Invalid number " + number);
+        }
+    }
+
+    private void expect(String literal) {
+        if (!text.startsWith(literal, pos)) {
+            throw error("Expected " + literal);
+        }
+        pos += literal.length();
+    }
+
+    private char peek() {
+        if (pos >= text.length()) {
+            throw error("Unexpected end of input");
+        }
+        return text.charAt(pos);
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + pos);
+    }
+}
+
+// ========== EXPORT ENCODER ==========
+// Buffered UTF-8 encoder for the export formats. Numbers are written digit by
+// digit into the buffer, so encoding a row does not allocate.
+class ExportEncoder implements Closeable {
+    private final OutputStream out;
+    private final byte[] buf;
+    private int pos;
+
+    ExportEncoder(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buf = new byte[bufferSize];
+    }
+
+    void writeByte(int b) throws IOException {
+        if (pos == buf.length) {
+            drain();
+        }
+        buf[pos++] = (byte) b;
+    }
+
+    void writeAscii(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            writeByte(s.charAt(i));
+        }
+    }
+
+    void writeLong(long value) throws IOException {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                writeAscii("-9223372036854775808");
+                return;
+            }
+            writeByte('-');
+            value = -value;
+        }
+        if (pos + 19 > buf.length) {
+            drain();
+        }
+        int start = pos;
+        do {
+            buf[pos++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = pos - 1; i < j; i++, j--) {
+            byte tmp = buf[i];
+            buf[i] = buf[j];
+            buf[j] = tmp;
+        }
+    }
+
+    // Writes an amount held in cents as a fixed two-decimal number
+    void writeCents(long cents) throws IOException {
+        if (cents < 0) {
+            writeByte('-');
+            cents = -cents;
+        }
+        writeLong(cents / 100);
+        writeByte('.');
+        int fraction = (int) (cents % 100);
+        writeByte('0' + fraction / 10);
+        writeByte('0' + fraction % 10);
+    }
+
+    void writeCsvField(String s) throws IOException {
+        if (s == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writeUtf8(s);
+            return;
+        }
+        writeByte('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') {
+                writeByte('"');
+            }
+            writeChar(s, i, c);
+            if (Character.isHighSurrogate(c) && i + 1 < s.length()) {
+                i++;
+            }
+        }
+        writeByte('"');
+    }
+
+    void writeJsonString(String s) throws IOException {
+        if (s == null) {
+            writeAscii("null");
+            return;
+        }
+        writeByte('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': writeAscii("\\\""); break;
+                case '\\': writeAscii("\\\\"); break;
+                case '\n': writeAscii("\\n"); break;
+                case '\r': writeAscii("\\r"); break;
+                case '\t': writeAscii("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        writeAscii("\\u00");
+                        writeByte(Character.forDigit(c >> 4, 16));
+                        writeByte(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        writeChar(s, i, c);
+                        if (Character.isHighSurrogate(c) && i + 1 < s.length()) {
+                            i++;
+                        }
+                    }
+            }
+        }
+        writeByte('"');
+    }
+
+    private void writeUtf8(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            writeChar(s, i, c);
+            if (Character.isHighSurrogate(c) && i + 1 < s.length()) {
+                i++;
+            }
+        }
+    }
+
+    // Encodes the character at index i; a surrogate pair consumes s[i + 1] too
+    private void writeChar(String s, int i, char c) throws IOException {
+        if (c < 0x80) {
+            writeByte(c);
+        } else if (c < 0x800) {
+            writeByte(0xC0 | (c >> 6));
+            writeByte(0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                && Character.isLowSurrogate(s.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, s.charAt(i + 1));
+            writeByte(0xF0 | (cp >> 18));
+            writeByte(0x80 | ((cp >> 12) & 0x3F));
+            writeByte(0x80 | ((cp >> 6) & 0x3F));
+            writeByte(0x80 | (cp & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+            writeByte('?');
+        } else {
+            writeByte(0xE0 | (c >> 12));
+            writeByte(0x80 | ((c >> 6) & 0x3F));
+            writeByte(0x80 | (c & 0x3F));
+        }
+    }
+
+    private void drain() throws IOException {
+        out.write(buf, 0, pos);
+        pos = 0;
+    }
+
+    // Pushes out everything written so far without closing the stream
+    void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        drain();
+        out.close();
+    }
+}
+
+// ========== GUARDED RESPONSE ==========
+// Response wrapper for async requests. Once detach() runs (normal completion,
+// timeout or client error) further writes from a still-running handler are
+// dropped instead of touching a response the container may have recycled.
+class GuardedResponse extends HttpServletResponseWrapper {
+    private final Object guard = new Object();
+    private volatile boolean detached;
+    private PrintWriter writer;
+    private ServletOutputStream stream;
+
+    GuardedResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+    void detach(Runnable completion) {
+        synchronized (guard) {
+            detached = true;
+            completion.run();
+        }
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            PrintWriter target = super.getWriter();
+            writer = new PrintWriter(new Writer() {
+                @Override
+                public void write(char[] buf, int off, int len) {
+                    synchronized (guard) {
+                        if (!detached) {
+                            target.write(buf, off, len);
+                        }
+                    }
+                }
+
+                @Override
+                public void write(String str, int off, int len) {
+                    synchronized (guard) {
+                        if (!detached) {
+                            target.write(str, off, len);
+                        }
+                    }
+                }
+
+                @Override
+                public void flush() {
+                    synchronized (guard) {
+                        if (!detached) {
+                            target.flush();
+                        }
+                    }
+                }
+
+                @Override
+                public void close() {
+                    flush();
+                }
+            });
+        }
+        return writer;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (stream == null) {
+            ServletOutputStream target = super.getOutputStream();
+            stream = new ServletOutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    synchronized (guard) {
+                        if (!detached) {
+                            target.write(b);
+                        }
+                    }
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    synchronized (guard) {
+                        if (!detached) {
+                            target.write(b, off, len);
+                        }
+                    }
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    synchronized (guard) {
+                        if (!detached) {
+                            target.flush();
+                        }
+                    }
+                }
+
+                @Override
+                public boolean isReady() {
+                    return target.isReady();
+                }
+
+                @Override
+                public void setWriteListener(WriteListener listener) {
+                    target.setWriteListener(listener);
+                }
+            };
+        }
+        return stream;
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        if (!detached) {
+            super.setStatus(sc);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (!detached) {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (!detached) {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        if (!detached) {
+            super.setDateHeader(name, date);
+        }
+    }
+
+    @Override
+    public void setContentType(String type) {
+        if (!detached) {
+            super.setContentType(type);
+        }
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        if (!detached) {
+            super.sendError(sc, msg);
+        }
+    }
+}
+
+// ========== CONNECTION POOL ==========
+// Minimal JDBC connection pool. Connections handed out are proxies whose
+// close() returns the physical connection to the pool, so callers can use
+// try-with-resources exactly as they would with DriverManager connections.
+class ConnectionPool implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(ConnectionPool.class.getName());
+
+    private final String name;
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMs;
+    private final int validationTimeoutSec;
+    private final long validateAfterIdleMs;
+    private final long leakThresholdMs;
+    private final boolean leakStackTraces;
+
+    private final LinkedBlockingDeque<IdleConnection> idle = new LinkedBlockingDeque<>();
+    private final Map<Connection, Lease> leased = new ConcurrentHashMap<>();
+    private final Semaphore permits;
+    private final AtomicInteger total = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+    private volatile Listener listener;
+
+    // Notified of connection wait and statement execution times
+    interface Listener {
+        void connectionAcquired(long waitNanos);
+
+        void statementExecuted(long nanos);
+    }
+
+    // Statistics
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder destroyedCount = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    ConnectionPool(String name, String url, String user, String password,
+                   int minSize, int maxSize, long acquireTimeoutMs,
+                   int validationTimeoutSec, long validateAfterIdleMs,
+                   long leakThresholdMs, boolean leakStackTraces) {
+        if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size for " + name
+                    + ": min=" + minSize + ", max=" + maxSize);
+        }
+        this.name = name;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.validationTimeoutSec = validationTimeoutSec;
+        this.validateAfterIdleMs = validateAfterIdleMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.leakStackTraces = leakStackTraces;
+        this.permits = new Semaphore(maxSize, true);
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-" + name + "-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, 5, TimeUnit.SECONDS);
+    }
+
+    Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool " + name + " is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLTransientConnectionException("Timed out after " + acquireTimeoutMs
+                        + " ms waiting for a connection from pool " + name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection from pool " + name, e);
+        }
+
+        try {
+            Connection raw = takeValidIdle();
+            if (raw == null) {
+                raw = openPhysical();
+            }
+            long waited = System.nanoTime() - start;
+            waitNanos.add(waited);
+            borrowCount.increment();
+            Listener l = listener;
+            if (l != null) {
+                l.connectionAcquired(waited);
+            }
+            Connection proxy = wrap(raw);
+            // Capturing the borrow site costs a stack walk per borrow, so it is opt-in
+            Exception origin = leakThresholdMs > 0 && leakStackTraces
+                    ? new Exception("Connection borrowed here") : null;
+            leased.put(proxy, new Lease(raw, System.currentTimeMillis(), origin));
+            return proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Only connections idle for longer than validateAfterIdleMs are checked
+    // with isValid(); one returned moments ago is reused without the round trip
+    private Connection takeValidIdle() {
+        IdleConnection entry;
+        while ((entry = idle.pollFirst()) != null) {
+            if (System.nanoTime() - entry.idleSince < TimeUnit.MILLISECONDS.toNanos(validateAfterIdleMs)) {
+                return entry.raw;
+            }
+            try {
+                if (entry.raw.isValid(validationTimeoutSec)) {
+                    return entry.raw;
+                }
+            } catch (SQLException ignored) {
+                // treated as invalid below
+            }
+            validationFailures.increment();
+            destroy(entry.raw);
+        }
+        return null;
+    }
+
+    private Connection openPhysical() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, user, password);
+        total.incrementAndGet();
+        createdCount.increment();
+        return raw;
+    }
+
+    private void destroy(Connection raw) {
+        total.decrementAndGet();
+        destroyedCount.increment();
+        try {
+            raw.close();
+        } catch (SQLException ignored) {
+            // connection is being discarded anyway
+        }
+    }
+
+    private void release(Connection proxy) {
+        Lease lease = leased.remove(proxy);
+        if (lease == null) {
+            return; // already returned
+        }
+        Connection raw = lease.raw;
+        boolean reusable = !closed;
+        try {
+            if (reusable && !raw.getAutoCommit()) {
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+        if (reusable) {
+            idle.offerFirst(new IdleConnection(raw));
+        } else {
+            destroy(raw);
+        }
+        permits.release();
+    }
+
+    private Connection wrap(Connection raw) {
+        AtomicBoolean returned = new AtomicBoolean();
+        Connection[] self = new Connection[1];
+        self[0] = (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                (p, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            if (returned.compareAndSet(false, true)) {
+                                release(self[0]);
+                            }
+                            return null;
+                        case "isClosed":
+                            return returned.get() || raw.isClosed();
+                        case "equals":
+                            return p == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(p);
+                        case "toString":
+                            return "PooledConnection[" + name + "]";
+                        default:
+                            if (returned.get()) {
+                                throw new SQLException("Connection already returned to pool " + name);
+                            }
+                            Object result;
+                            try {
+                                result = method.invoke(raw, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                            Listener l = listener;
+                            if (l != null && result instanceof Statement) {
+                                return timed((Statement) result, method.getReturnType(), l);
+                            }
+                            return result;
+                    }
+                });
+        return self[0];
+    }
+
+    // Wraps a statement so the listener sees how long each execute* call takes
+    private Object timed(Statement statement, Class<?> type, Listener l) {
+        return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[] {type},
+                (p, method, args) -> {
+                    boolean execute = method.getName().startsWith("execute");
+                    long start = execute ? System.nanoTime() : 0;
+                    try {
+                        return method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        if (execute) {
+                            l.statementExecuted(System.nanoTime() - start);
+                        }
+                    }
+                });
+    }
+
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Tops the pool up to minSize and reports connections held past the leak threshold
+    private void housekeep() {
+        if (closed) {
+            return;
+        }
+        while (total.get() < minSize && idle.size() + leased.size() < minSize) {
+            try {
+                idle.offerLast(new IdleConnection(openPhysical()));
+            } catch (SQLException e) {
+                LOG.warning("Pool " + name + " could not open connection: " + e.getMessage());
+                break;
+            }
+        }
+        if (leakThresholdMs <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Lease lease : leased.values()) {
+            if (!lease.reported && now - lease.borrowedAt > leakThresholdMs) {
+                lease.reported = true;
+                leakCount.increment();
+                LOG.log(java.util.logging.Level.WARNING, "Possible connection leak in pool " + name
+                        + ": held for " + (now - lease.borrowedAt) + " ms"
+                        + (lease.origin == null ? " (set leakStackTraces=true to see where)" : ""),
+                        lease.origin);
+            }
+        }
+    }
+
+    String getName() { return name; }
+    int getMaxSize() { return maxSize; }
+    int getTotal() { return total.get(); }
+    int getIdle() { return idle.size(); }
+    int getActive() { return leased.size(); }
+    int getWaiting() { return permits.getQueueLength(); }
+    long getBorrowCount() { return borrowCount.sum(); }
+    long getTimeoutCount() { return timeoutCount.sum(); }
+    long getCreatedCount() { return createdCount.sum(); }
+    long getDestroyedCount() { return destroyedCount.sum(); }
+    long getValidationFailures() { return validationFailures.sum(); }
+    long getLeakCount() { return leakCount.sum(); }
+
+    String stats() {
+        long borrows = borrowCount.sum();
+        long avgWaitMicros = borrows == 0 ? 0 : waitNanos.sum() / borrows / 1000;
+        return "Pool " + name + ": total=" + getTotal() + ", active=" + getActive()
+                + ", idle=" + getIdle() + ", waiting=" + getWaiting()
+                + ", borrowed=" + borrows + ", avgWaitUs=" + avgWaitMicros
+                + ", timeouts=" + getTimeoutCount() + ", created=" + getCreatedCount()
+                + ", destroyed=" + getDestroyedCount() + ", invalid=" + getValidationFailures()
+                + ", leaks=" + getLeakCount();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        IdleConnection entry;
+        while ((entry = idle.pollFirst()) != null) {
+            destroy(entry.raw);
+        }
+        // Leased connections are destroyed as they are returned
+    }
+
+    private static class IdleConnection {
+        final Connection raw;
+        final long idleSince = System.nanoTime();
+
+        IdleConnection(Connection raw) {
+            this.raw = raw;
+        }
+    }
+
+    private static class Lease {
+        final Connection raw;
+        final long borrowedAt;
+        final Exception origin;
+        volatile boolean reported;
+
+        Lease(Connection raw, long borrowedAt, Exception origin) {
+            this.raw = raw;
+            this.borrowedAt = borrowedAt;
+            this.origin = origin;
+        }
+    }
 }
@@ -0,0 +1,369 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+// ============================================================================
+// LOAD HARNESS: boots CombinedServlet in embedded Jetty against in-memory H2
+// databases (company in MySQL mode, school in H2's default mode), drives a
+// mixed GET/POST workload and reports throughput, latency percentiles and
+// error rates. Needs no external services.
+// ============================================================================
+public class CombinedServletLoadHarness {
+
+    static final String[] OPERATIONS = {"login", "employeeList", "employeeGet", "employeeExport",
+            "attendance", "attendanceBulk"};
+
+    // Command line settings
+    int concurrency = 32;
+    int durationSec = 30;
+    int warmupSec = 5;
+    int employees = 10000;
+    int containerThreads = 16;
+    double maxErrorRate = 0.01;
+    Map<String, Integer> mix = new LinkedHashMap<>();
+    Map<String, String> initParams = new LinkedHashMap<>();
+
+    // Results, indexed like OPERATIONS
+    final LatencyHistogram[] latency = new LatencyHistogram[OPERATIONS.length];
+    final LongAdder[] errors = new LongAdder[OPERATIONS.length];
+
+    CombinedServletLoadHarness() {
+        resetResults();
+    }
+
+    public static void main(String[] args) throws Exception {
+        CombinedServletLoadHarness harness = new CombinedServletLoadHarness();
+        harness.parseArgs(args);
+        boolean passed = harness.run();
+        System.exit(passed ? 0 : 1);
+    }
+
+    void parseArgs(String[] args) {
+        mix.put("login", 10);
+        mix.put("employeeList", 30);
+        mix.put("employeeGet", 35);
+        mix.put("employeeExport", 0);
+        mix.put("attendance", 20);
+        mix.put("attendanceBulk", 5);
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (arg) {
+                case "--concurrency": concurrency = Integer.parseInt(value); i++; break;
+                case "--duration": durationSec = Integer.parseInt(value); i++; break;
+                case "--warmup": warmupSec = Integer.parseInt(value); i++; break;
+                case "--employees": employees = Integer.parseInt(value); i++; break;
+                case "--container-threads": containerThreads = Integer.parseInt(value); i++; break;
+                case "--max-error-rate": maxErrorRate = Double.parseDouble(value); i++; break;
+                case "--mix":
+                    // e.g. --mix employeeGet=50,attendance=50
+                    mix.replaceAll((k, v) -> 0);
+                    for (String part : value.split(",")) {
+                        String[] kv = part.split("=");
+                        if (!mix.containsKey(kv[0])) {
+                            throw new IllegalArgumentException("Unknown operation: " + kv[0]);
+                        }
+                        mix.put(kv[0], Integer.parseInt(kv[1]));
+                    }
+                    i++;
+                    break;
+                case "--init":
+                    // servlet init param, e.g. --init employee.cache.enabled=true
+                    int eq = value.indexOf('=');
+                    initParams.put(value.substring(0, eq), value.substring(eq + 1));
+                    i++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+    }
+
+    boolean run() throws Exception {
+        String suffix = Long.toString(System.nanoTime(), 36);
+        String empUrl = "jdbc:h2:mem:company_" + suffix + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        // H2's MySQL mode hands out duplicate AUTO_INCREMENT keys under
+        // concurrent inserts, so the attendance database runs in regular mode
+        String attUrl = "jdbc:h2:mem:school_" + suffix + ";DB_CLOSE_DELAY=-1";
+        seedCompany(empUrl);
+        seedSchool(attUrl);
+
+        Server server = startServer(empUrl, attUrl);
+        int port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+        String base = "http://localhost:" + port;
+        System.out.println("CombinedServlet listening on " + base);
+
+        try {
+            if (warmupSec > 0) {
+                System.out.println("Warming up for " + warmupSec + " s...");
+                drive(base, warmupSec);
+                resetResults();
+            }
+            System.out.println("Running " + concurrency + " clients for " + durationSec + " s, mix " + mix);
+            long start = System.nanoTime();
+            drive(base, durationSec);
+            double elapsedSec = (System.nanoTime() - start) / 1e9;
+            return report(elapsedSec);
+        } finally {
+            server.stop();
+        }
+    }
+
+    // ========== DATABASE SEEDING ==========
+    void seedCompany(String url) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url, "root", "password");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE Employee ("
+                    + "EmpID INT PRIMARY KEY AUTO_INCREMENT, "
+                    + "Name VARCHAR(100) NOT NULL, "
+                    + "Salary DECIMAL(10, 2) NOT NULL)");
+            stmt.execute("CREATE TABLE EmployeeVersion ("
+                    + "id TINYINT PRIMARY KEY, "
+                    + "version BIGINT NOT NULL, "
+                    + "updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3))");
+            stmt.execute("INSERT INTO EmployeeVersion (id, version) VALUES (1, 0)");
+
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO Employee (EmpID, Name, Salary) VALUES (?, ?, ?)")) {
+                for (int id = 1; id <= employees; id++) {
+                    ps.setInt(1, id);
+                    ps.setString(2, "Employee " + id);
+                    ps.setDouble(3, 30000 + (id * 37 % 70000));
+                    ps.addBatch();
+                    if (id % 1000 == 0) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    void seedSchool(String url) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url, "root", "password");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE Attendance ("
+                    + "AttendanceID BIGINT PRIMARY KEY AUTO_INCREMENT, "
+                    + "StudentID INT NOT NULL, "
+                    + "Date DATE NOT NULL, "
+                    + "Status VARCHAR(10) NOT NULL)");
+        }
+    }
+
+    // ========== SERVER ==========
+    Server startServer(String empUrl, String attUrl) throws Exception {
+        QueuedThreadPool threads = new QueuedThreadPool(Math.max(containerThreads, 8), 2);
+        threads.setName("container");
+        Server server = new Server(threads);
+        ServerConnector connector = new ServerConnector(server);
+        connector.setPort(0);
+        server.addConnector(connector);
+
+        ServletHolder holder = new ServletHolder(new CombinedServlet());
+        holder.setAsyncSupported(true);
+        holder.setInitParameter("emp.url", empUrl);
+        holder.setInitParameter("att.url", attUrl);
+        holder.setInitParameter("db.driver", "org.h2.Driver");
+        for (Map.Entry<String, String> param : initParams.entrySet()) {
+            holder.setInitParameter(param.getKey(), param.getValue());
+        }
+
+        ServletContextHandler context = new ServletContextHandler();
+        for (String path : new String[] {"/login", "/employee", "/employee/export",
+                "/attendance", "/attendance/bulk", "/metrics"}) {
+            context.addServlet(holder, path);
+        }
+        server.setHandler(context);
+        server.start();
+        return server;
+    }
+
+    // ========== LOAD GENERATION ==========
+    void drive(String base, int seconds) throws InterruptedException {
+        int[] weights = new int[OPERATIONS.length];
+        int totalWeight = 0;
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            weights[i] = mix.getOrDefault(OPERATIONS[i], 0);
+            totalWeight += weights[i];
+        }
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("Operation mix has no weight");
+        }
+        int weightSum = totalWeight;
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        List<Thread> workers = new ArrayList<>();
+        for (int w = 0; w < concurrency; w++) {
+            Thread t = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    int pick = random.nextInt(weightSum);
+                    int op = 0;
+                    while (pick >= weights[op]) {
+                        pick -= weights[op];
+                        op++;
+                    }
+                    execute(client, base, op, random);
+                }
+            }, "load-client-" + w);
+            t.start();
+            workers.add(t);
+        }
+        for (Thread t : workers) {
+            t.join();
+        }
+    }
+
+    void execute(HttpClient client, String base, int op, ThreadLocalRandom random) {
+        HttpRequest request = buildRequest(base, OPERATIONS[op], random);
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() >= 400 || isErrorBody(response.body())) {
+                errors[op].increment();
+            }
+        } catch (Exception e) {
+            errors[op].increment();
+        }
+        latency[op].record(System.nanoTime() - start);
+    }
+
+    // The employee and attendance handlers report database failures in an
+    // HTTP 200 page, and an export that fails midway ends with an error record
+    static boolean isErrorBody(String body) {
+        return body.contains("<h2>Error</h2>") || body.contains("<p>Error: ")
+                || body.startsWith("#ERROR,") || body.contains("\n#ERROR,");
+    }
+
+    HttpRequest buildRequest(String base, String operation, ThreadLocalRandom random) {
+        int empId = 1 + random.nextInt(employees);
+        switch (operation) {
+            case "login":
+                return form(base + "/login", "username=admin&password=pass123");
+            case "employeeList":
+                return get(base + "/employee?after=" + (empId - 1) + "&limit=50");
+            case "employeeGet":
+                return get(base + "/employee?empId=" + empId);
+            case "employeeExport":
+                return get(base + "/employee/export?format=csv");
+            case "attendance":
+                return form(base + "/attendance",
+                        "studentId=" + empId + "&date=2024-06-01&status=Present");
+            case "attendanceBulk":
+                StringBuilder csv = new StringBuilder("studentId,status\n");
+                for (int i = 0; i < 50; i++) {
+                    csv.append(1 + random.nextInt(100000)).append(i % 7 == 0 ? ",Absent\n" : ",Present\n");
+                }
+                return HttpRequest.newBuilder(URI.create(base + "/attendance/bulk?date=2024-06-01"))
+                        .timeout(Duration.ofSeconds(30))
+                        .header("Content-Type", "text/csv")
+                        .POST(HttpRequest.BodyPublishers.ofString(csv.toString()))
+                        .build();
+            default:
+                throw new IllegalArgumentException(operation);
+        }
+    }
+
+    static HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    static HttpRequest form(String url, String body) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    // ========== REPORTING ==========
+    void resetResults() {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            latency[i] = new LatencyHistogram();
+            errors[i] = new LongAdder();
+        }
+    }
+
+    // Returns false when the overall error rate exceeds maxErrorRate
+    boolean report(double elapsedSec) {
+        double[] quantiles = {0.5, 0.9, 0.99, 0.999};
+        long totalRequests = 0;
+        long totalErrors = 0;
+
+        System.out.println("\n" + "=".repeat(104));
+        System.out.printf("%-16s %10s %10s %8s %10s %10s %10s %10s %10s%n",
+                "Operation", "Requests", "Req/s", "Err %", "p50 ms", "p90 ms", "p99 ms", "p999 ms", "");
+        System.out.println("=".repeat(104));
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            long count = latency[i].getCount();
+            if (count == 0) {
+                continue;
+            }
+            long errorCount = errors[i].sum();
+            long[] values = latency[i].quantiles(quantiles);
+            System.out.printf("%-16s %10d %10.1f %8.2f %10.2f %10.2f %10.2f %10.2f%n",
+                    OPERATIONS[i], count, count / elapsedSec, 100.0 * errorCount / count,
+                    values[0] / 1000.0, values[1] / 1000.0, values[2] / 1000.0, values[3] / 1000.0);
+            totalRequests += count;
+            totalErrors += errorCount;
+        }
+        System.out.println("=".repeat(104));
+        double errorRate = totalRequests == 0 ? 0 : (double) totalErrors / totalRequests;
+        System.out.printf("Total: %d requests in %.1f s, %.1f req/s, error rate %.2f%%%n",
+                totalRequests, elapsedSec, totalRequests / elapsedSec, errorRate * 100);
+
+        if (errorRate > maxErrorRate) {
+            System.out.printf("FAILED: error rate above %.2f%%%n", maxErrorRate * 100);
+            return false;
+        }
+        return true;
+    }
+}
+
+/*
+=============================================================================
+RUNNING THE LOAD HARNESS
+=============================================================================
+Jars needed on the classpath (Jetty 9.4 still uses javax.servlet):
+   javax.servlet-api-4.0.1.jar
+   jetty-server, jetty-servlet, jetty-security, jetty-http, jetty-io,
+   jetty-util (9.4.x)
+   h2-2.2.x.jar
+
+   javac -cp "lib/*" CombinedServlet.java LatencyHistogram.java CombinedServletLoadHarness.java
+   java -cp ".:lib/*" CombinedServletLoadHarness --concurrency 64 --duration 60
+
+Options:
+   --concurrency N         concurrent clients (default 32)
+   --duration S            measured run length in seconds (default 30)
+   --warmup S              unmeasured warm-up in seconds (default 5)
+   --employees N           rows seeded into Employee (default 10000)
+   --container-threads N   Jetty worker threads (default 16)
+   --mix op=w,...          weights for login, employeeList, employeeGet,
+                           employeeExport, attendance, attendanceBulk
+   --init key=value        servlet init param, repeatable
+   --max-error-rate R      exit with status 1 above this rate (default 0.01)
+=============================================================================
+*/